@@ -0,0 +1,115 @@
+package scheduler.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import scheduler.Scheduler;
+import scheduler.Session;
+import scheduler.storage.InMemoryBackend;
+import scheduler.storage.Storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// End-to-end commands, driven through the same entry point the interactive and server modes use.
+// Each trial creates its own caregiver, patient and vaccine so runs do not interfere. It runs
+// against the in-memory backend unless -p backend=sqlserver is given.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandBenchmark {
+
+    private static final Pattern APPOINTMENT_ID = Pattern.compile("Appointment ID: (\\d+)");
+    private static final String DATE = "2030-01-15";
+
+    @Param("memory")
+    public String backend;
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private Session session;
+    private String patient;
+    private String caregiver;
+    private String vaccine;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        patient = "bench_p_" + suffix;
+        caregiver = "bench_c_" + suffix;
+        vaccine = "bench_v_" + suffix;
+        session = new Session(new PrintStream(buffer, true, StandardCharsets.UTF_8));
+        if (backend.equals("memory")) {
+            Storage.use(new InMemoryBackend());
+        }
+        if (!Scheduler.startup()) {
+            throw new IllegalStateException("scheduler failed to start");
+        }
+
+        run("create_caregiver " + caregiver + " pw");
+        run("logout");
+        run("login_caregiver " + caregiver + " pw");
+        run("upload_availability " + DATE);
+        run("add_doses " + vaccine + " 1000000");
+        run("logout");
+        run("create_patient " + patient + " pw");
+        run("logout");
+        run("login_patient " + patient + " pw");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        run("logout");
+        Storage.shutdown();
+    }
+
+    @Benchmark
+    public String login() {
+        run("logout");
+        return run("login_patient " + patient + " pw");
+    }
+
+    @Benchmark
+    public String searchCaregiverSchedule() {
+        return run("search_caregiver_schedule " + DATE);
+    }
+
+    // reserve and cancel are measured together so the caregiver's slot is freed again each time
+    @Benchmark
+    public String reserveThenCancel() {
+        String reserved = run("reserve " + DATE + " " + vaccine);
+        Matcher m = APPOINTMENT_ID.matcher(reserved);
+        if (!m.find()) {
+            throw new IllegalStateException("reserve failed: " + reserved);
+        }
+        return run("cancel " + m.group(1));
+    }
+
+    @Benchmark
+    public String showAppointments() {
+        return run("show_appointments");
+    }
+
+    private String run(String command) {
+        buffer.reset();
+        Scheduler.execute(command, session);
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+}
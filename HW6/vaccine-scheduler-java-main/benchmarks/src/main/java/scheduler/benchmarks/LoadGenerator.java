@@ -0,0 +1,296 @@
+package scheduler.benchmarks;
+
+import scheduler.Scheduler;
+import scheduler.Session;
+import scheduler.metrics.Histogram;
+import scheduler.storage.InMemoryBackend;
+import scheduler.storage.Storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Closed-loop load test: N virtual users, each on its own thread and session, issue commands
+// through Scheduler.execute in a weighted mix, pausing for an exponentially distributed think
+// time between commands. It runs against the in-memory backend unless --backend sqlserver is
+// given. Latency is measured per command from the end of the warm-up on.
+//
+//   java -cp target/benchmarks.jar scheduler.benchmarks.LoadGenerator [--users 50] [--duration 60]
+//       [--warmup 10] [--think-ms 50] [--caregivers 2000] [--days 30] [--backend memory]
+//       [--mix search_caregiver_schedule=50,show_appointments=20,reserve=10,cancel=8,login_patient=7,create_patient=5]
+public class LoadGenerator {
+
+    private static final String DEFAULT_MIX = "search_caregiver_schedule=50,show_appointments=20,reserve=10,"
+            + "cancel=8,login_patient=7,create_patient=5";
+    private static final Pattern APPOINTMENT_ID = Pattern.compile("Appointment ID: (\\d+)");
+    // replies that mean the command itself went wrong, as opposed to e.g. no caregiver being free
+    private static final String[] ERROR_REPLIES = {"Please try again", "failed", "Failed", "Error", "Please login"};
+    private static final String PASSWORD = "pw";
+    private static final LocalDate FIRST_DAY = LocalDate.of(2030, 1, 1);
+
+    private final int users;
+    private final int durationSeconds;
+    private final int warmupSeconds;
+    private final int thinkMillis;
+    private final int caregivers;
+    private final int days;
+    private final String[] mixCommands;
+    private final int[] mixCumulative;
+
+    private final Map<String, CommandStats> stats = new LinkedHashMap<>();
+    private volatile boolean measuring = false;
+    private volatile boolean stopping = false;
+
+    private static class CommandStats {
+        final Histogram latencyNanos = new Histogram();
+        final LongAdder errors = new LongAdder();
+    }
+
+    LoadGenerator(Map<String, String> options) {
+        this.users = Integer.parseInt(options.getOrDefault("users", "50"));
+        this.durationSeconds = Integer.parseInt(options.getOrDefault("duration", "60"));
+        this.warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        this.thinkMillis = Integer.parseInt(options.getOrDefault("think-ms", "50"));
+        this.caregivers = Integer.parseInt(options.getOrDefault("caregivers", "2000"));
+        this.days = Integer.parseInt(options.getOrDefault("days", "30"));
+
+        String[] entries = options.getOrDefault("mix", DEFAULT_MIX).split(",");
+        this.mixCommands = new String[entries.length];
+        this.mixCumulative = new int[entries.length];
+        int total = 0;
+        for (int i = 0; i < entries.length; i++) {
+            String[] entry = entries[i].split("=");
+            if (entry.length != 2) {
+                throw new IllegalArgumentException("Mix entries look like command=weight: " + entries[i]);
+            }
+            mixCommands[i] = entry[0].trim();
+            total += Integer.parseInt(entry[1].trim());
+            mixCumulative[i] = total;
+            stats.put(mixCommands[i], new CommandStats());
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("The mix needs at least one positive weight");
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                System.out.println("Options look like --name value: " + args[i]);
+                return;
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        if (options.getOrDefault("backend", "memory").equals("memory")) {
+            Storage.use(new InMemoryBackend());
+        }
+        if (!Scheduler.startup()) {
+            throw new IllegalStateException("scheduler failed to start");
+        }
+        try {
+            new LoadGenerator(options).run();
+        } finally {
+            Storage.shutdown();
+        }
+    }
+
+    void run() throws InterruptedException {
+        String run = Long.toString(System.currentTimeMillis() % 1_000_000, 36);
+        long seedStart = System.nanoTime();
+        seed(run);
+        System.out.println(String.format(Locale.ROOT, "Seeded %d caregivers over %d days in %.1fs",
+                caregivers, days, (System.nanoTime() - seedStart) / 1e9));
+
+        CountDownLatch done = new CountDownLatch(users);
+        for (int u = 0; u < users; u++) {
+            String name = "load_" + run + "_" + u;
+            Thread t = new Thread(() -> {
+                try {
+                    new VirtualUser(name).run();
+                } finally {
+                    done.countDown();
+                }
+            }, "virtual-user-" + u);
+            t.setDaemon(true);
+            t.start();
+        }
+        Thread.sleep(warmupSeconds * 1000L);
+        measuring = true;
+        long start = System.nanoTime();
+        Thread.sleep(durationSeconds * 1000L);
+        measuring = false;
+        double seconds = (System.nanoTime() - start) / 1e9;
+        stopping = true;
+        done.await();
+        report(seconds);
+    }
+
+    // caregivers with availability on every day, and plenty of one vaccine
+    private void seed(String run) {
+        Session session = new Session(new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8));
+        LocalDate lastDay = FIRST_DAY.plusDays(days - 1);
+        for (int c = 0; c < caregivers; c++) {
+            String caregiver = "load_c_" + run + "_" + c;
+            Scheduler.execute("create_caregiver " + caregiver + " " + PASSWORD, session);
+            Scheduler.execute("upload_availability " + FIRST_DAY + " " + lastDay, session);
+            if (c == 0) {
+                Scheduler.execute("add_doses load_vaccine 100000000", session);
+            }
+            Scheduler.execute("logout", session);
+        }
+    }
+
+    private class VirtualUser {
+        private final String name;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final Session session = new Session(new PrintStream(buffer, true, StandardCharsets.UTF_8));
+        // appointments this user holds, so cancel has something of its own to cancel
+        private final ArrayDeque<String> appointments = new ArrayDeque<>();
+        private int created = 0;
+
+        VirtualUser(String name) {
+            this.name = name;
+        }
+
+        void run() {
+            execute("create_patient " + name + " " + PASSWORD);
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (!stopping) {
+                String command = pick(random);
+                String line = commandLine(command, random);
+                if (line == null) {
+                    continue;
+                }
+                boolean record = measuring;
+                long start = System.nanoTime();
+                String reply = execute(line);
+                long elapsed = System.nanoTime() - start;
+                boolean error = isError(reply);
+                if (!error) {
+                    afterwards(command, reply);
+                }
+                if (record) {
+                    CommandStats s = stats.get(command);
+                    s.latencyNanos.record(elapsed);
+                    if (error) {
+                        s.errors.increment();
+                    }
+                }
+                think(random);
+            }
+        }
+
+        // the line for the next command; null to skip it (cancel with nothing booked)
+        private String commandLine(String command, ThreadLocalRandom random) {
+            LocalDate day = FIRST_DAY.plusDays(random.nextInt(days));
+            switch (command) {
+                case "search_caregiver_schedule":
+                    return "search_caregiver_schedule " + day;
+                case "reserve":
+                    return "reserve " + day + " load_vaccine";
+                case "cancel":
+                    return appointments.isEmpty() ? null : "cancel " + appointments.peekFirst();
+                case "show_appointments":
+                    return "show_appointments --limit 20";
+                case "login_patient":
+                    // log out first so this is a real login; only the login itself is timed
+                    execute("logout");
+                    return "login_patient " + name + " " + PASSWORD;
+                case "create_patient":
+                    // a sign-up on this user's terminal; afterwards the user logs back in as themselves
+                    execute("logout");
+                    return "create_patient " + name + "_" + (++created) + " " + PASSWORD;
+                default:
+                    return command;
+            }
+        }
+
+        private void afterwards(String command, String reply) {
+            if (command.equals("reserve")) {
+                Matcher m = APPOINTMENT_ID.matcher(reply);
+                if (m.find()) {
+                    appointments.addLast(m.group(1));
+                }
+            } else if (command.equals("cancel")) {
+                appointments.pollFirst();
+            } else if (command.equals("create_patient")) {
+                execute("logout");
+                execute("login_patient " + name + " " + PASSWORD);
+            }
+        }
+
+        private void think(ThreadLocalRandom random) {
+            if (thinkMillis <= 0) {
+                return;
+            }
+            long pause = (long) (-Math.log(1.0 - random.nextDouble()) * thinkMillis);
+            try {
+                Thread.sleep(pause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private String execute(String line) {
+            buffer.reset();
+            Scheduler.execute(line, session);
+            return buffer.toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    private String pick(ThreadLocalRandom random) {
+        int r = random.nextInt(mixCumulative[mixCumulative.length - 1]);
+        for (int i = 0; i < mixCumulative.length; i++) {
+            if (r < mixCumulative[i]) {
+                return mixCommands[i];
+            }
+        }
+        return mixCommands[mixCommands.length - 1];
+    }
+
+    private static boolean isError(String reply) {
+        for (String error : ERROR_REPLIES) {
+            if (reply.contains(error)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void report(double seconds) {
+        System.out.println(String.format(Locale.ROOT, "%d users for %.1fs, think time %d ms", users, seconds,
+                thinkMillis));
+        System.out.println(String.format(Locale.ROOT, "%-26s %9s %8s %7s %9s %9s %9s %9s %9s",
+                "command", "count", "per sec", "err %", "p50 ms", "p99 ms", "p999 ms", "max ms", "mean ms"));
+        long totalCount = 0;
+        long totalErrors = 0;
+        List<String> names = new ArrayList<>(stats.keySet());
+        for (String command : names) {
+            CommandStats s = stats.get(command);
+            Histogram h = s.latencyNanos;
+            long count = h.getCount();
+            long errors = s.errors.sum();
+            totalCount += count;
+            totalErrors += errors;
+            System.out.println(String.format(Locale.ROOT, "%-26s %9d %8.1f %7.2f %9.3f %9.3f %9.3f %9.3f %9.3f",
+                    command, count, count / seconds, count == 0 ? 0.0 : 100.0 * errors / count,
+                    h.getValueAtQuantile(0.50) / 1e6, h.getValueAtQuantile(0.99) / 1e6,
+                    h.getValueAtQuantile(0.999) / 1e6, h.getMax() / 1e6, h.getMean() / 1e6));
+        }
+        System.out.println(String.format(Locale.ROOT, "%-26s %9d %8.1f %7.2f", "total", totalCount,
+                totalCount / seconds, totalCount == 0 ? 0.0 : 100.0 * totalErrors / totalCount));
+    }
+}
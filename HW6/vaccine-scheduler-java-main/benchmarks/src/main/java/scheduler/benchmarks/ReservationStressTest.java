@@ -0,0 +1,253 @@
+package scheduler.benchmarks;
+
+import scheduler.model.Appointment;
+import scheduler.storage.AppointmentRepository;
+import scheduler.storage.DaySlots;
+import scheduler.storage.InMemoryBackend;
+import scheduler.storage.Reservation;
+import scheduler.storage.Storage;
+import scheduler.storage.StorageBackend;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Concurrent reservation stress test: many threads reserve on one day at the same moment until
+// the slots or the doses run out, then cancel everything again at the same moment. It checks
+// that no appointment ID and no (caregiver, day, slot) was handed out twice, that exactly as
+// many appointments were booked as there were slots or doses, and that the dose count and the
+// free slots add up after each phase. On the in-memory backend it also checks that publishing
+// slots on a day held by an appointment from before slots (which books the whole day) opens
+// none of them. Exits with status 1 on the first violation. It runs against the in-memory
+// backend unless --backend sqlserver is given.
+//
+//   java -cp target/benchmarks.jar scheduler.benchmarks.ReservationStressTest [--threads 32]
+//       [--caregivers 8] [--hours 09:00-11:00] [--doses 50] [--rounds 5] [--backend memory]
+public class ReservationStressTest {
+
+    private static final byte[] SALT = new byte[16];
+    private static final byte[] HASH = new byte[16];
+
+    private final int threads;
+    private final int caregivers;
+    private final DaySlots hours;
+    private final int doses;
+    private final int rounds;
+
+    private final List<String> failures = new ArrayList<>();
+
+    ReservationStressTest(Map<String, String> options) {
+        this.threads = Integer.parseInt(options.getOrDefault("threads", "32"));
+        this.caregivers = Integer.parseInt(options.getOrDefault("caregivers", "8"));
+        this.hours = DaySlots.parseHours(options.getOrDefault("hours", "09:00-11:00"));
+        // by default fewer doses than slots, so both ways a reservation can fail are exercised
+        this.doses = Integer.parseInt(options.getOrDefault("doses",
+                Integer.toString(caregivers * hours.count() * 3 / 4)));
+        this.rounds = Integer.parseInt(options.getOrDefault("rounds", "5"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                System.out.println("Options look like --name value: " + args[i]);
+                return;
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        if (options.getOrDefault("backend", "memory").equals("memory")) {
+            Storage.use(new InMemoryBackend());
+        }
+        boolean passed;
+        try {
+            Storage.backend().initialize();
+            passed = new ReservationStressTest(options).run();
+        } finally {
+            Storage.shutdown();
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    boolean run() throws Exception {
+        for (int round = 1; round <= rounds && failures.isEmpty(); round++) {
+            round(round);
+        }
+        if (failures.isEmpty() && Storage.backend() instanceof InMemoryBackend) {
+            legacyDay((InMemoryBackend) Storage.backend());
+        }
+        if (failures.isEmpty()) {
+            System.out.println("OK: no double-bookings in " + rounds + " rounds");
+            return true;
+        }
+        for (String failure : failures) {
+            System.out.println("FAILED: " + failure);
+        }
+        return false;
+    }
+
+    // each round books a fresh day with fresh caregivers and a fresh vaccine, so rounds (and
+    // runs against a shared database) cannot see each other's rows
+    private void round(int round) throws Exception {
+        StorageBackend backend = Storage.backend();
+        String run = Long.toString(System.nanoTime() % 1_000_000_000L, 36) + "_" + round;
+        Date day = Date.valueOf(LocalDate.of(2040, 1, 1).plusDays(ThreadLocalRandom.current().nextInt(100_000)));
+        String vaccine = "stress_v_" + run;
+
+        List<String> caregiverNames = new ArrayList<>();
+        for (int c = 0; c < caregivers; c++) {
+            String caregiver = "stress_c_" + run + "_" + c;
+            backend.caregivers().insert(caregiver, SALT, HASH);
+            backend.availabilities().addSlots(caregiver, List.of(day), hours);
+            caregiverNames.add(caregiver);
+        }
+        List<String> patients = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String patient = "stress_p_" + run + "_" + t;
+            backend.patients().insert(patient, SALT, HASH);
+            patients.add(patient);
+        }
+        backend.vaccines().insert(vaccine, doses);
+        int slots = caregivers * hours.count();
+
+        // every thread keeps reserving until it is told there is nothing left
+        ConcurrentLinkedQueue<Reservation> booked = new ConcurrentLinkedQueue<>();
+        AtomicInteger errors = new AtomicInteger();
+        long start = System.nanoTime();
+        runConcurrently(t -> {
+            while (true) {
+                Reservation reservation = backend.appointments().reserve(day, vaccine, patients.get(t));
+                if (reservation.getOutcome() != Reservation.Outcome.RESERVED) {
+                    return;
+                }
+                booked.add(reservation);
+            }
+        }, errors);
+        double reserveSeconds = (System.nanoTime() - start) / 1e9;
+
+        Set<Long> ids = new HashSet<>();
+        Set<String> claimed = new HashSet<>();
+        for (Reservation reservation : booked) {
+            check(ids.add(reservation.getAppointmentId()),
+                    "appointment ID " + reservation.getAppointmentId() + " handed out twice");
+            check(caregiverNames.contains(reservation.getCaregiver()),
+                    "booked unknown caregiver " + reservation.getCaregiver());
+            check(hours.isFree(reservation.getSlot()),
+                    "booked slot " + reservation.getSlot() + " outside the published hours");
+            check(claimed.add(reservation.getCaregiver() + " " + day + " " + reservation.getSlot()),
+                    reservation.getCaregiver() + " double-booked on " + day + " at "
+                            + DaySlots.time(reservation.getSlot()));
+            Appointment stored = backend.appointments().find(reservation.getAppointmentId());
+            check(stored != null && stored.getCaregiver().equals(reservation.getCaregiver())
+                            && stored.getSlot() == reservation.getSlot(),
+                    "appointment " + reservation.getAppointmentId() + " was not stored as reserved");
+        }
+        check(errors.get() == 0, errors.get() + " reservations threw");
+        check(booked.size() == Math.min(slots, doses),
+                booked.size() + " appointments booked from " + slots + " slots and " + doses + " doses");
+        checkDoses(vaccine, doses - booked.size());
+        check(backend.availabilities().caregiversOn(day).isEmpty() == (booked.size() == slots),
+                "caregivers with free slots left do not match the bookings");
+
+        // and cancelling everything at once gives every slot and dose back
+        List<Reservation> toCancel = new ArrayList<>(booked);
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger cancelled = new AtomicInteger();
+        runConcurrently(t -> {
+            AppointmentRepository appointments = backend.appointments();
+            for (int i = next.getAndIncrement(); i < toCancel.size(); i = next.getAndIncrement()) {
+                if (appointments.cancel(toCancel.get(i).getAppointmentId())) {
+                    cancelled.incrementAndGet();
+                }
+            }
+        }, errors);
+        check(errors.get() == 0, errors.get() + " reservations or cancellations threw");
+        check(cancelled.get() == toCancel.size(), cancelled.get() + " of " + toCancel.size() + " cancelled");
+        checkDoses(vaccine, doses);
+        check(backend.availabilities().caregiversOn(day).equals(caregiverNames),
+                "not every caregiver got their slots back");
+
+        System.out.println(String.format(Locale.ROOT,
+                "round %d: %d threads booked %d of %d slots (%d doses) in %.3fs, then cancelled them",
+                round, threads, booked.size(), slots, doses, reserveSeconds));
+    }
+
+    // a caregiver whose day is taken by a slotless appointment stays fully booked when they
+    // publish hours on it again, and gets the day back when that appointment is cancelled
+    private void legacyDay(InMemoryBackend backend) throws SQLException {
+        String run = Long.toString(System.nanoTime() % 1_000_000_000L, 36);
+        Date day = Date.valueOf(LocalDate.of(2040, 1, 1).plusDays(ThreadLocalRandom.current().nextInt(100_000)));
+        String caregiver = "stress_c_" + run + "_legacy";
+        String patient = "stress_p_" + run + "_legacy";
+        String vaccine = "stress_v_" + run + "_legacy";
+        backend.caregivers().insert(caregiver, SALT, HASH);
+        backend.patients().insert(patient, SALT, HASH);
+        backend.vaccines().insert(vaccine, doses);
+        long legacy = backend.insertLegacyAppointment(day, patient, caregiver, vaccine);
+
+        DaySlots free = backend.availabilities().addSlots(caregiver, List.of(day), hours).get(day);
+        check(free != null && free.isEmpty(), "publishing hours reopened " + free + " on a fully booked day");
+        check(!backend.availabilities().caregiversOn(day).contains(caregiver),
+                "a fully booked caregiver is listed as available");
+        Reservation reservation = backend.appointments().reserve(day, vaccine, patient);
+        check(reservation.getOutcome() == Reservation.Outcome.NO_CAREGIVER,
+                "reserved slot " + reservation.getSlot() + " on top of a whole-day appointment");
+        if (reservation.getOutcome() == Reservation.Outcome.RESERVED) {
+            backend.appointments().cancel(reservation.getAppointmentId());
+        }
+
+        check(backend.appointments().cancel(legacy), "the whole-day appointment could not be cancelled");
+        check(backend.availabilities().caregiversOn(day).contains(caregiver),
+                "cancelling the whole-day appointment did not give the day back");
+        System.out.println("legacy day: publishing over a whole-day appointment opened no slots");
+    }
+
+    private interface Worker {
+        void run(int thread) throws SQLException;
+    }
+
+    // starts every thread at once, so they contend from the first reservation on
+    private void runConcurrently(Worker worker, AtomicInteger errors) throws InterruptedException {
+        CountDownLatch ready = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            Thread th = new Thread(() -> {
+                try {
+                    ready.await();
+                    worker.run(thread);
+                } catch (SQLException | InterruptedException e) {
+                    e.printStackTrace();
+                    errors.incrementAndGet();
+                } finally {
+                    done.countDown();
+                }
+            }, "stress-" + t);
+            th.setDaemon(true);
+            th.start();
+        }
+        ready.countDown();
+        done.await();
+    }
+
+    private void checkDoses(String vaccine, int expected) throws SQLException {
+        Integer left = Storage.backend().vaccines().findDoses(vaccine);
+        check(left != null && left == expected, "expected " + expected + " doses of " + vaccine + ", found " + left);
+    }
+
+    private void check(boolean condition, String failure) {
+        if (!condition) {
+            failures.add(failure);
+        }
+    }
+}
@@ -1,3 +1,8 @@
+-- The full current schema, for setting a database up by hand. The scheduler itself applies the
+-- versioned scripts in migrations/ at startup, which arrive at the same schema; the SchemaVersion
+-- rows at the end record them all as applied, so a database built from this file passes the
+-- startup check and is not migrated again. Add a row here with every new migration.
+
 CREATE TABLE Caregivers (
     Username varchar(255),
     Salt BINARY(16),
@@ -12,9 +17,14 @@ CREATE TABLE Patient (
     PRIMARY KEY (Username)
 );
 
+-- one row per caregiver and published day; SlotsAM and SlotsPM are the bitset of the day's free
+-- 15-minute slots (bit n of SlotsAM is slot n, bit n of SlotsPM is slot 48 + n), defaulting to
+-- 09:00 to 17:00
 CREATE TABLE Availabilities (
     Time date,
     Username varchar(255) REFERENCES Caregivers,
+    SlotsAM bigint NOT NULL CONSTRAINT DF_Availabilities_SlotsAM DEFAULT 281406257233920,
+    SlotsPM bigint NOT NULL CONSTRAINT DF_Availabilities_SlotsPM DEFAULT 1048575,
     PRIMARY KEY (Time, Username)
 );
 
@@ -25,10 +35,34 @@ CREATE TABLE Vaccines (
 );
 
 CREATE TABLE Appointment (
-  ID int,
+  ID bigint,
   Time date,
   Patname varchar(255) REFERENCES Patient,
   Carename varchar(255) REFERENCES Caregivers,
   vaccines varchar(255) REFERENCES Vaccines,
+  Slot smallint NULL,
   PRIMARY KEY (ID)
-);
\ No newline at end of file
+);
+
+-- appointment IDs are leased in blocks of consecutive values with sp_sequence_get_range (see IdAllocator)
+CREATE SEQUENCE AppointmentIdBlocks AS bigint START WITH 1 INCREMENT BY 1;
+
+CREATE INDEX IX_Appointment_Carename_ID ON Appointment (Carename, ID) INCLUDE (Time, Patname, vaccines, Slot);
+CREATE INDEX IX_Appointment_Carename_Time ON Appointment (Carename, Time);
+CREATE INDEX IX_Appointment_Patname_ID ON Appointment (Patname, ID) INCLUDE (Time, Carename, vaccines, Slot);
+CREATE UNIQUE INDEX UX_Appointment_Carename_Time_Slot ON Appointment (Carename, Time, Slot) WHERE Slot IS NOT NULL;
+
+-- the migrations this schema already includes (see SchemaMigrator)
+CREATE TABLE SchemaVersion (
+    Version int PRIMARY KEY,
+    Script varchar(255) NOT NULL,
+    AppliedAt datetime2 NOT NULL DEFAULT SYSUTCDATETIME()
+);
+
+INSERT INTO SchemaVersion (Version, Script) VALUES
+    (1, 'V1__initial_schema.sql'),
+    (2, 'V2__appointment_id_blocks.sql'),
+    (3, 'V3__covering_indexes.sql'),
+    (4, 'V4__appointment_keyset_indexes.sql'),
+    (5, 'V5__availability_slots.sql'),
+    (6, 'V6__appointment_id_ranges.sql');
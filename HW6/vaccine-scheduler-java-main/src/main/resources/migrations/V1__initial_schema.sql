@@ -0,0 +1,42 @@
+-- The original create.sql tables. Databases created by hand from create.sql already have them,
+-- so every table is created only if it is missing.
+
+IF OBJECT_ID('Caregivers', 'U') IS NULL
+CREATE TABLE Caregivers (
+    Username varchar(255),
+    Salt BINARY(16),
+    Hash BINARY(16),
+    PRIMARY KEY (Username)
+);
+
+IF OBJECT_ID('Patient', 'U') IS NULL
+CREATE TABLE Patient (
+    Username varchar(255),
+    Salt BINARY(16),
+    Hash BINARY(16),
+    PRIMARY KEY (Username)
+);
+
+IF OBJECT_ID('Availabilities', 'U') IS NULL
+CREATE TABLE Availabilities (
+    Time date,
+    Username varchar(255) REFERENCES Caregivers,
+    PRIMARY KEY (Time, Username)
+);
+
+IF OBJECT_ID('Vaccines', 'U') IS NULL
+CREATE TABLE Vaccines (
+    Name varchar(255),
+    Doses int,
+    PRIMARY KEY (Name)
+);
+
+IF OBJECT_ID('Appointment', 'U') IS NULL
+CREATE TABLE Appointment (
+  ID int,
+  Time date,
+  Patname varchar(255) REFERENCES Patient,
+  Carename varchar(255) REFERENCES Caregivers,
+  vaccines varchar(255) REFERENCES Vaccines,
+  PRIMARY KEY (ID)
+);
@@ -0,0 +1,21 @@
+-- 64-bit appointment IDs leased in blocks from a sequence (see IdAllocator)
+
+IF EXISTS (SELECT 1 FROM sys.columns
+           WHERE object_id = OBJECT_ID('Appointment') AND name = 'ID' AND system_type_id = TYPE_ID('int'))
+BEGIN
+    DECLARE @pk nvarchar(256) = (SELECT name FROM sys.key_constraints
+                                 WHERE parent_object_id = OBJECT_ID('Appointment') AND type = 'PK');
+    DECLARE @drop nvarchar(400) = N'ALTER TABLE Appointment DROP CONSTRAINT ' + QUOTENAME(@pk);
+    EXEC sp_executesql @drop;
+    ALTER TABLE Appointment ALTER COLUMN ID bigint NOT NULL;
+    ALTER TABLE Appointment ADD PRIMARY KEY (ID);
+END;
+
+-- start past every ID already handed out, whatever the block size
+IF OBJECT_ID('AppointmentIdBlocks', 'SO') IS NULL
+BEGIN
+    DECLARE @start bigint = ISNULL((SELECT MAX(ID) FROM Appointment), 0) + 1;
+    DECLARE @create nvarchar(400) = N'CREATE SEQUENCE AppointmentIdBlocks AS bigint START WITH '
+            + CAST(@start AS nvarchar(20)) + N' INCREMENT BY 1';
+    EXEC sp_executesql @create;
+END;
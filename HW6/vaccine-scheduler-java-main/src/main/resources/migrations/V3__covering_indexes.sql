@@ -0,0 +1,14 @@
+-- Covering indexes for the scheduler's query paths. The primary keys already serve lookups
+-- by username, vaccine name, appointment ID and availability by day.
+
+-- reserve drops every day of the booked caregiver; the clustered key (Time) rides along
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_Availabilities_Username')
+CREATE INDEX IX_Availabilities_Username ON Availabilities (Username);
+
+-- show_appointments for a caregiver and the upload_availability conflict checks
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_Appointment_Carename_Time')
+CREATE INDEX IX_Appointment_Carename_Time ON Appointment (Carename, Time) INCLUDE (Patname, vaccines);
+
+-- show_appointments for a patient, already in ID order
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_Appointment_Patname_ID')
+CREATE INDEX IX_Appointment_Patname_ID ON Appointment (Patname, ID) INCLUDE (Time, Carename, vaccines);
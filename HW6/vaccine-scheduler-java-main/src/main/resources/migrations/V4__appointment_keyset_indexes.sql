@@ -0,0 +1,7 @@
+-- show_appointments pages through a caregiver's history by (Carename, ID), so that path gets its
+-- own covering index; the (Carename, Time) index only has to serve the conflict checks now
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_Appointment_Carename_ID')
+CREATE INDEX IX_Appointment_Carename_ID ON Appointment (Carename, ID) INCLUDE (Time, Patname, vaccines);
+
+CREATE INDEX IX_Appointment_Carename_Time ON Appointment (Carename, Time) WITH (DROP_EXISTING = ON);
@@ -0,0 +1,30 @@
+-- Availability by 15-minute slot: each Availabilities row becomes a bitset of the caregiver's
+-- free slots that day (see DaySlots). Bit n of SlotsAM is slot n (00:00 to 12:00) and bit n of
+-- SlotsPM is slot 48 + n (12:00 to 24:00); 48 bits a word keeps the sign bit out of it. A row
+-- stays when its day is fully booked, so cancelling can hand the slot back.
+
+-- days published before slots get the default hours, 09:00 to 17:00 (DaySlots.DEFAULT_HOURS)
+IF COL_LENGTH('Availabilities', 'SlotsAM') IS NULL
+ALTER TABLE Availabilities ADD
+    SlotsAM bigint NOT NULL CONSTRAINT DF_Availabilities_SlotsAM DEFAULT 281406257233920,
+    SlotsPM bigint NOT NULL CONSTRAINT DF_Availabilities_SlotsPM DEFAULT 1048575;
+
+-- the slot an appointment holds; NULL for appointments from before slots, which took the whole day
+IF COL_LENGTH('Appointment', 'Slot') IS NULL
+ALTER TABLE Appointment ADD Slot smallint NULL;
+GO
+
+-- a slot is booked at most once
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'UX_Appointment_Carename_Time_Slot')
+CREATE UNIQUE INDEX UX_Appointment_Carename_Time_Slot ON Appointment (Carename, Time, Slot)
+    WHERE Slot IS NOT NULL;
+
+-- show_appointments prints the slot, so the keyset indexes carry it
+CREATE INDEX IX_Appointment_Carename_ID ON Appointment (Carename, ID)
+    INCLUDE (Time, Patname, vaccines, Slot) WITH (DROP_EXISTING = ON);
+CREATE INDEX IX_Appointment_Patname_ID ON Appointment (Patname, ID)
+    INCLUDE (Time, Carename, vaccines, Slot) WITH (DROP_EXISTING = ON);
+
+-- reserve no longer drops a booked caregiver's other days, which is all this index was for
+IF EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_Availabilities_Username')
+DROP INDEX IX_Availabilities_Username ON Availabilities;
@@ -0,0 +1,14 @@
+-- Appointment IDs are now the sequence's own values, leased a range at a time with
+-- sp_sequence_get_range, instead of block numbers multiplied by each process's IdBlockSize
+-- (which let processes with different sizes lease overlapping IDs). The sequence restarts past
+-- every ID handed out so far: past the largest ID booked, and past the blocks leased under the
+-- old scheme at the default size of 1000. Stop processes running with a larger IdBlockSize
+-- before upgrading, since their leased blocks cannot be seen from here.
+
+DECLARE @leased bigint = (SELECT (CAST(current_value AS bigint) + 1) * 1000 FROM sys.sequences
+                          WHERE name = 'AppointmentIdBlocks');
+DECLARE @booked bigint = ISNULL((SELECT MAX(ID) FROM Appointment), 0) + 1;
+DECLARE @restart bigint = CASE WHEN @booked > @leased THEN @booked ELSE @leased END;
+DECLARE @alter nvarchar(400) = N'ALTER SEQUENCE AppointmentIdBlocks RESTART WITH '
+        + CAST(@restart AS nvarchar(20));
+EXEC sp_executesql @alter;
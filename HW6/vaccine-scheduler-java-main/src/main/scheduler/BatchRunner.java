@@ -0,0 +1,156 @@
+package scheduler;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs a script of commands for one session without the interactive menu. Commands run in script
+// order, except that a run of consecutive read-only commands (which neither change the session
+// nor the data) is executed concurrently; their output is still written in script order. All
+// output goes through the one buffered stream, and a timing summary follows the last command.
+// Blank lines and lines starting with # are skipped. Whenever reading the next line would block
+// (someone typing, or a slow pipe) whatever is pending runs and the output is flushed first.
+public class BatchRunner {
+
+    private static final Set<String> READ_ONLY = Set.of("search_caregiver_schedule", "show_appointments", "stats");
+    // most read-only commands that are run together
+    private static final int MAX_CONCURRENT = 256;
+
+    private final PrintStream out;
+    private final Session session;
+    private final ExecutorService workers;
+
+    private final List<String> pendingLines = new ArrayList<>();
+    private final Map<String, long[]> timings = new TreeMap<>();
+    private int commands = 0;
+    private int concurrent = 0;
+
+    public BatchRunner(PrintStream out, int threads) {
+        this.out = out;
+        this.session = new Session(out);
+        AtomicInteger count = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "batch-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public void run(BufferedReader in) throws IOException {
+        long start = System.nanoTime();
+        try {
+            String line;
+            while (true) {
+                if (!in.ready()) {
+                    runPending();
+                    out.flush();
+                }
+                line = in.readLine();
+                if (line == null) {
+                    break;
+                }
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                if (READ_ONLY.contains(operation(line))) {
+                    pendingLines.add(line);
+                    if (pendingLines.size() == MAX_CONCURRENT) {
+                        runPending();
+                    }
+                    continue;
+                }
+                runPending();
+                out.println("> " + line);
+                if (!timed(line, session)) {
+                    break;
+                }
+            }
+            runPending();
+        } finally {
+            workers.shutdownNow();
+        }
+        printSummary(System.nanoTime() - start);
+        out.flush();
+    }
+
+    private void runPending() {
+        if (pendingLines.isEmpty()) {
+            return;
+        }
+        if (pendingLines.size() == 1) {
+            out.println("> " + pendingLines.get(0));
+            timed(pendingLines.get(0), session);
+            pendingLines.clear();
+            return;
+        }
+        List<Future<ByteArrayOutputStream>> results = new ArrayList<>(pendingLines.size());
+        for (String line : pendingLines) {
+            results.add(workers.submit(() -> {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                try (PrintStream commandOut = new PrintStream(buffer, false, StandardCharsets.UTF_8)) {
+                    timed(line, session.withOutput(commandOut));
+                }
+                return buffer;
+            }));
+        }
+        for (int i = 0; i < results.size(); i++) {
+            out.println("> " + pendingLines.get(i));
+            try {
+                results.get(i).get().writeTo(out);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while running the script");
+            } catch (ExecutionException | IOException e) {
+                out.println("Please try again!");
+                e.printStackTrace();
+            }
+        }
+        concurrent += results.size();
+        pendingLines.clear();
+    }
+
+    // runs one command and adds its time to the summary; false if it was quit
+    private boolean timed(String line, Session commandSession) {
+        long start = System.nanoTime();
+        boolean more = Scheduler.execute(line, commandSession);
+        long elapsed = System.nanoTime() - start;
+        synchronized (timings) {
+            long[] timing = timings.computeIfAbsent(operation(line), k -> new long[2]);
+            timing[0]++;
+            timing[1] += elapsed;
+            commands++;
+        }
+        return more;
+    }
+
+    private void printSummary(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        out.println();
+        out.println(String.format(Locale.ROOT, "Ran %d commands in %.3fs (%.1f commands/sec), %d of them concurrently",
+                commands, seconds, seconds > 0 ? commands / seconds : 0.0, concurrent));
+        for (Map.Entry<String, long[]> timing : timings.entrySet()) {
+            long[] t = timing.getValue();
+            out.println(String.format(Locale.ROOT, "  %-26s %8d  %10.3f ms total  %8.3f ms avg",
+                    timing.getKey(), t[0], t[1] / 1e6, t[1] / 1e6 / t[0]));
+        }
+    }
+
+    private static String operation(String line) {
+        int space = line.indexOf(' ');
+        return space < 0 ? line : line.substring(0, space);
+    }
+}
@@ -0,0 +1,56 @@
+package scheduler;
+
+// One entry of the command registry: the handler and how many tokens (including the operation
+// itself) a valid line has. Scheduler.execute checks the count before the handler runs, so a
+// handler can index every token up to minTokens - 1 without checking.
+public class Command {
+
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    public interface Handler {
+        void run(CommandLine line, Session session);
+    }
+
+    private final String name;
+    private final int minTokens;
+    private final int maxTokens;
+    private final String usageError;
+    private final Handler handler;
+    private final boolean endsSession;
+
+    public Command(String name, int minTokens, int maxTokens, String usageError, Handler handler) {
+        this(name, minTokens, maxTokens, usageError, handler, false);
+    }
+
+    public Command(String name, int minTokens, int maxTokens, String usageError, Handler handler,
+                   boolean endsSession) {
+        this.name = name;
+        this.minTokens = minTokens;
+        this.maxTokens = maxTokens;
+        this.usageError = usageError;
+        this.handler = handler;
+        this.endsSession = endsSession;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean accepts(int tokens) {
+        return tokens >= minTokens && tokens <= maxTokens;
+    }
+
+    // true for quit
+    public boolean endsSession() {
+        return endsSession;
+    }
+
+    // what the user is told when the line has the wrong number of tokens
+    public String getUsageError() {
+        return usageError;
+    }
+
+    public void run(CommandLine line, Session session) {
+        handler.run(line, session);
+    }
+}
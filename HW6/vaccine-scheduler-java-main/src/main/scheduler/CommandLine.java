@@ -0,0 +1,108 @@
+package scheduler;
+
+import java.sql.Date;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+// One command line split on spaces, without a regex and without copying: the tokens are kept as
+// offsets into the line, and the offset arrays are reused for the next line parsed into the same
+// object. Token 0 is the operation. Typed accessors parse straight from the line; they throw
+// IllegalArgumentException (NumberFormatException for numbers) on a malformed argument.
+public class CommandLine {
+
+    private String line = "";
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private int size = 0;
+
+    // splits the line, treating any run of spaces as one separator
+    public CommandLine parse(String text) {
+        line = text;
+        size = 0;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && text.charAt(i) == ' ') {
+                i++;
+            }
+            if (i == length) {
+                break;
+            }
+            int start = i;
+            while (i < length && text.charAt(i) != ' ') {
+                i++;
+            }
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+            }
+            starts[size] = start;
+            ends[size] = i;
+            size++;
+        }
+        return this;
+    }
+
+    // the number of tokens, including the operation
+    public int size() {
+        return size;
+    }
+
+    public String token(int i) {
+        return line.substring(starts[i], ends[i]);
+    }
+
+    public int tokenLength(int i) {
+        return ends[i] - starts[i];
+    }
+
+    public boolean tokenEquals(int i, String value) {
+        return ends[i] - starts[i] == value.length() && line.startsWith(value, starts[i]);
+    }
+
+    public int intArg(int i) {
+        return Integer.parseInt(line, starts[i], ends[i], 10);
+    }
+
+    public long longArg(int i) {
+        return Long.parseLong(line, starts[i], ends[i], 10);
+    }
+
+    // a yyyy-[m]m-[d]d date, as days since 1970-01-01
+    public long epochDay(int i) {
+        int pos = starts[i];
+        int end = ends[i];
+        int firstDash = line.indexOf('-', pos);
+        int secondDash = firstDash < 0 ? -1 : line.indexOf('-', firstDash + 1);
+        if (firstDash < 0 || secondDash < 0 || secondDash >= end
+                || firstDash - pos != 4 || secondDash - firstDash > 3 || end - secondDash > 3) {
+            throw new IllegalArgumentException("Not a date: " + token(i));
+        }
+        try {
+            return LocalDate.of(digits(pos, firstDash), digits(firstDash + 1, secondDash),
+                    digits(secondDash + 1, end)).toEpochDay();
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Not a date: " + token(i));
+        }
+    }
+
+    public Date date(int i) {
+        return Date.valueOf(LocalDate.ofEpochDay(epochDay(i)));
+    }
+
+    private int digits(int from, int to) {
+        if (from == to) {
+            throw new IllegalArgumentException("Missing date field");
+        }
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = line.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new IllegalArgumentException("Not a digit: " + c);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,43 @@
+package scheduler;
+
+// The commands the scheduler understands, looked up by the operation token without creating a
+// String for it: the table is indexed by name length, and the few names of that length are
+// compared in place against the line.
+public class CommandRegistry {
+
+    private volatile Command[][] byLength = new Command[0][];
+
+    public synchronized void register(Command command) {
+        int length = command.getName().length();
+        if (length >= byLength.length) {
+            Command[][] grown = new Command[length + 1][];
+            System.arraycopy(byLength, 0, grown, 0, byLength.length);
+            byLength = grown;
+        }
+        Command[] same = byLength[length];
+        Command[] added = new Command[same == null ? 1 : same.length + 1];
+        if (same != null) {
+            System.arraycopy(same, 0, added, 0, same.length);
+        }
+        added[added.length - 1] = command;
+        byLength[length] = added;
+    }
+
+    // the command named by the line's first token, or null
+    public Command find(CommandLine line) {
+        if (line.size() == 0) {
+            return null;
+        }
+        Command[][] table = byLength;
+        int length = line.tokenLength(0);
+        if (length >= table.length || table[length] == null) {
+            return null;
+        }
+        for (Command command : table[length]) {
+            if (line.tokenEquals(0, command.getName())) {
+                return command;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,309 @@
+package scheduler;
+
+import scheduler.cache.AvailabilityIndex;
+import scheduler.cache.UsernameFilter;
+import scheduler.cache.VaccineCache;
+import scheduler.storage.Credentials;
+import scheduler.storage.Storage;
+import scheduler.storage.UserRepository;
+import scheduler.util.PasswordHasher;
+import scheduler.util.Util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+// Bulk loads caregivers, patients, availability or vaccine inventory from a CSV file.
+// The file is streamed and written in chunks, one batch insert per chunk. Passwords are hashed
+// on the PasswordHasher pool while the previous chunk is being written, so hashing and inserts
+// overlap. A bad row is reported and skipped; it never aborts the rest of the load.
+//
+//   caregivers, patients: username,password
+//   availability:         date,caregiver
+//   vaccines:             name,doses      (doses are added to the current inventory)
+public class CsvImport {
+
+    public static final int DEFAULT_CHUNK_SIZE = Util.intSetting("ImportChunkSize", 500);
+
+    private static final int MAX_NAME_LENGTH = 255;
+    private static final int MAX_REPORTED_REJECTS = 20;
+
+    public enum Kind {
+        CAREGIVERS("username,password"),
+        PATIENTS("username,password"),
+        AVAILABILITY("date,caregiver"),
+        VACCINES("name,doses");
+
+        private final String header;
+
+        Kind(String header) {
+            this.header = header;
+        }
+
+        // null if the name is not one of the kinds
+        public static Kind of(String name) {
+            for (Kind kind : values()) {
+                if (kind.name().equalsIgnoreCase(name)) {
+                    return kind;
+                }
+            }
+            return null;
+        }
+    }
+
+    // one parsed line waiting to be written
+    private static class Row {
+        final int line;
+        final String key;
+        byte[] salt;
+        CompletableFuture<byte[]> hash;
+        Date date;
+        int doses;
+
+        Row(int line, String key) {
+            this.line = line;
+            this.key = key;
+        }
+    }
+
+    private final Kind kind;
+    private final int chunkSize;
+    private final PrintStream out;
+
+    private int imported = 0;
+    private int rejected = 0;
+
+    public CsvImport(Kind kind, int chunkSize, PrintStream out) {
+        this.kind = kind;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.out = out;
+    }
+
+    public int getImported() {
+        return imported;
+    }
+
+    public int getRejected() {
+        return rejected;
+    }
+
+    public void run(BufferedReader in) throws IOException, SQLException {
+        long start = System.nanoTime();
+        List<Row> pending = new ArrayList<>();
+        List<Row> current = new ArrayList<>(chunkSize);
+        int lineNumber = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            if (lineNumber == 1 && line.replace(" ", "").equalsIgnoreCase(kind.header)) {
+                continue;
+            }
+            Row row = parse(lineNumber, line);
+            if (row == null) {
+                continue;
+            }
+            current.add(row);
+            if (current.size() == chunkSize) {
+                // the new chunk is already hashing; write the one before it meanwhile
+                write(pending);
+                pending = current;
+                current = new ArrayList<>(chunkSize);
+            }
+        }
+        write(pending);
+        write(current);
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (rejected > MAX_REPORTED_REJECTS) {
+            out.println("... and " + (rejected - MAX_REPORTED_REJECTS) + " more rejected rows");
+        }
+        out.println("Imported " + imported + " " + kind.name().toLowerCase() + " rows and rejected " + rejected
+                + " in " + String.format("%.2f", seconds) + "s ("
+                + String.format("%.0f", seconds > 0 ? (imported + rejected) / seconds : 0.0) + " rows/sec)");
+    }
+
+    // validates one line; returns null (after reporting it) if the row is bad
+    private Row parse(int lineNumber, String line) {
+        List<String> fields = splitCsv(line);
+        if (fields == null || fields.size() != 2) {
+            reject(lineNumber, "expected " + kind.header);
+            return null;
+        }
+        String first = fields.get(0).trim();
+        String second = fields.get(1).trim();
+        switch (kind) {
+            case CAREGIVERS:
+            case PATIENTS: {
+                if (first.isEmpty() || first.length() > MAX_NAME_LENGTH || first.contains(" ")) {
+                    reject(lineNumber, "invalid username");
+                    return null;
+                }
+                if (second.isEmpty()) {
+                    reject(lineNumber, "missing password");
+                    return null;
+                }
+                Row row = new Row(lineNumber, first);
+                row.salt = Util.generateSalt();
+                row.hash = PasswordHasher.getInstance().hashAsync(second, row.salt);
+                return row;
+            }
+            case AVAILABILITY: {
+                Row row = new Row(lineNumber, second);
+                try {
+                    row.date = Date.valueOf(first);
+                } catch (IllegalArgumentException e) {
+                    reject(lineNumber, "invalid date");
+                    return null;
+                }
+                if (second.isEmpty()) {
+                    reject(lineNumber, "missing caregiver");
+                    return null;
+                }
+                return row;
+            }
+            default: {
+                if (first.isEmpty() || first.length() > MAX_NAME_LENGTH) {
+                    reject(lineNumber, "invalid vaccine name");
+                    return null;
+                }
+                Row row = new Row(lineNumber, first);
+                try {
+                    row.doses = Integer.parseInt(second);
+                } catch (NumberFormatException e) {
+                    row.doses = 0;
+                }
+                if (row.doses <= 0) {
+                    reject(lineNumber, "doses must be a positive number");
+                    return null;
+                }
+                return row;
+            }
+        }
+    }
+
+    private void write(List<Row> rows) throws SQLException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        switch (kind) {
+            case CAREGIVERS:
+                writeUsers(Storage.backend().caregivers(), UsernameFilter.caregivers(), rows);
+                break;
+            case PATIENTS:
+                writeUsers(Storage.backend().patients(), UsernameFilter.patients(), rows);
+                break;
+            case AVAILABILITY:
+                writeAvailability(rows);
+                break;
+            default:
+                writeVaccines(rows);
+                break;
+        }
+        rows.clear();
+    }
+
+    private void writeUsers(UserRepository users, UsernameFilter filter, List<Row> rows) throws SQLException {
+        List<String> usernames = new ArrayList<>(rows.size());
+        List<Credentials> credentials = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            usernames.add(row.key);
+            credentials.add(new Credentials(row.salt, row.hash.join()));
+        }
+        boolean[] inserted = users.insertAll(usernames, credentials);
+        for (int i = 0; i < inserted.length; i++) {
+            if (inserted[i]) {
+                filter.add(usernames.get(i));
+                imported++;
+            } else {
+                reject(rows.get(i).line, "username taken");
+            }
+        }
+    }
+
+    private void writeAvailability(List<Row> rows) throws SQLException {
+        List<Date> times = new ArrayList<>(rows.size());
+        List<String> caregivers = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            times.add(row.date);
+            caregivers.add(row.key);
+        }
+        boolean[] inserted = Storage.backend().availabilities().insertAll(times, caregivers);
+        AvailabilityIndex index = AvailabilityIndex.getInstance();
+        for (int i = 0; i < inserted.length; i++) {
+            if (inserted[i]) {
+                index.add(times.get(i), caregivers.get(i));
+                imported++;
+            } else {
+                reject(rows.get(i).line, "unknown caregiver or already available that day");
+            }
+        }
+    }
+
+    private void writeVaccines(List<Row> rows) throws SQLException {
+        Map<String, Integer> shipment = new LinkedHashMap<>();
+        for (Row row : rows) {
+            shipment.merge(row.key, row.doses, Integer::sum);
+        }
+        Map<String, Integer> updated = Storage.backend().vaccines().adjustAll(shipment);
+        updated.forEach(VaccineCache.getInstance()::set);
+        for (Row row : rows) {
+            if (updated.containsKey(row.key)) {
+                imported++;
+            } else {
+                reject(row.line, "dose count out of range");
+            }
+        }
+    }
+
+    private void reject(int lineNumber, String reason) {
+        rejected++;
+        if (rejected <= MAX_REPORTED_REJECTS) {
+            out.println("Rejected line " + lineNumber + ": " + reason);
+        }
+    }
+
+    // splits one CSV line, honouring double quotes ("" is a literal quote);
+    // returns null if a quote is left open
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -1,54 +1,116 @@
 package scheduler;
 
-import scheduler.db.ConnectionManager;
+import scheduler.cache.AvailabilityIndex;
+import scheduler.cache.SessionTokens;
+import scheduler.cache.UsernameFilter;
+import scheduler.cache.VaccineCache;
+import scheduler.db.SchemaMigrator;
+import scheduler.metrics.CommandEvent;
+import scheduler.metrics.Metrics;
+import scheduler.model.Appointment;
 import scheduler.model.Caregiver;
 import scheduler.model.Patient;
 import scheduler.model.Vaccine;
+import scheduler.storage.AppointmentPage;
+import scheduler.storage.DaySlots;
+import scheduler.storage.Reservation;
+import scheduler.storage.Storage;
+import scheduler.storage.UserRepository;
+import scheduler.util.PasswordHasher;
 import scheduler.util.Util;
-import java.util.Random;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.sql.SQLException;
 import java.sql.Date;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public class Scheduler {
 
-    // objects to keep track of the currently logged-in user
-    // Note: it is always true that at most one of currentCaregiver and currentPatient is not null
-    //       since only one user can be logged-in at a time
-    private static Caregiver currentCaregiver = null;
-    private static Patient currentPatient = null;
+    private static final CommandRegistry COMMANDS = new CommandRegistry();
+    // each thread parses into its own line, whose buffers are reused from command to command
+    private static final ThreadLocal<CommandLine> LINES = ThreadLocal.withInitial(CommandLine::new);
+
+    static {
+        // name, tokens including the name (min, max), what a wrong count is told, handler
+        COMMANDS.register(new Command("create_patient", 3, 3, "Failed to create user.", Scheduler::createPatient));
+        COMMANDS.register(new Command("create_caregiver", 3, 3, "Failed to create user.", Scheduler::createCaregiver));
+        COMMANDS.register(new Command("login_patient", 2, 3, "Please try again!", Scheduler::loginPatient));
+        COMMANDS.register(new Command("login_caregiver", 2, 3, "Login failed.", Scheduler::loginCaregiver));
+        COMMANDS.register(new Command("search_caregiver_schedule", 2, 2, "Please try again!",
+                Scheduler::searchCaregiverSchedule));
+        COMMANDS.register(new Command("reserve", 3, 3, "Please try again!", Scheduler::reserve));
+        COMMANDS.register(new Command("upload_availability", 2, 5, "Please try again!", Scheduler::uploadAvailability));
+        COMMANDS.register(new Command("cancel", 2, 2, "Please try again!", Scheduler::cancel));
+        COMMANDS.register(new Command("add_doses", 3, Command.UNBOUNDED, "Please try again!", Scheduler::addDoses));
+        COMMANDS.register(new Command("show_appointments", 1, 9, "Please try again!", Scheduler::showAppointments));
+        COMMANDS.register(new Command("import", 3, 4, "Please try again!", Scheduler::importCsv));
+        COMMANDS.register(new Command("stats", 1, 1, "Please try again!",
+                (line, session) -> Metrics.printTable(session.out)));
+        COMMANDS.register(new Command("logout", 1, 2, "Please try again!", Scheduler::logout));
+        COMMANDS.register(new Command("quit", 1, 1, "Please try again!",
+                (line, session) -> session.out.println("Bye!"), true));
+    }
 
+    // upper bound on one ranged upload_availability, so its batch stays a sensible size
+    private static final int MAX_UPLOAD_DAYS = 366;
 
     public static void main(String[] args) {
+        // scheduler --server [port] [max_sessions] serves many users over a local socket
+        if (args.length > 0 && args[0].equals("--server")) {
+            try {
+                int port = args.length > 1 ? Integer.parseInt(args[1]) : SchedulerServer.DEFAULT_PORT;
+                int maxSessions = args.length > 2 ? Integer.parseInt(args[2]) : SchedulerServer.DEFAULT_MAX_SESSIONS;
+                if (!startup()) {
+                    return;
+                }
+                new SchedulerServer(port, maxSessions, Util.intSetting("SessionIdleTimeoutSeconds", 1800)).run();
+            } catch (NumberFormatException e) {
+                System.out.println("Usage: --server [port] [max_sessions]");
+            } catch (IOException e) {
+                System.out.println("Server stopped: " + e.getMessage());
+            } finally {
+                Storage.shutdown();
+            }
+            return;
+        }
+
+        // scheduler --script <file> runs a script without the menu; --script - reads it from stdin
+        if (args.length == 2 && args[0].equals("--script")) {
+            runScript(args[1].equals("-") ? null : args[1]);
+            return;
+        }
+
         // printing greetings text
         System.out.println();
         System.out.println("Welcome to the COVID-19 Vaccine Reservation Scheduling Application!");
+        if (!startup()) {
+            Storage.shutdown();
+            return;
+        }
         int menuprint = 0;
 
+        // the interactive user gets a single session on stdin/stdout
+        Session session = new Session(System.out);
         BufferedReader r = new BufferedReader(new InputStreamReader(System.in));
         while (true) {
             if (menuprint != 0) {
                 System.out.println();
             }
-            System.out.println("*** Please enter one of the following commands ***");
-            System.out.println("> create_patient <username> <password>");  //TODO: implement create_patient (Part 1)
-            System.out.println("> create_caregiver <username> <password>");
-            System.out.println("> login_patient <username> <password>");  // TODO: implement login_patient (Part 1)
-            System.out.println("> login_caregiver <username> <password>");
-            System.out.println("> search_caregiver_schedule <date>");  // TODO: implement search_caregiver_schedule (Part 2)
-            System.out.println("> reserve <date> <vaccine>");  // TODO: implement reserve (Part 2)
-            System.out.println("> upload_availability <date>");
-            System.out.println("> cancel <appointment_id>");  // TODO: implement cancel (extra credit)
-            System.out.println("> add_doses <vaccine> <number>");
-            System.out.println("> show_appointments");  // TODO: implement show_appointments (Part 2)
-            System.out.println("> logout");  // TODO: implement logout (Part 2)
-            System.out.println("> quit");
-            System.out.println();
+            printMenu(System.out);
             System.out.print("> ");
             menuprint++;
             String response = "";
@@ -57,584 +119,716 @@ public class Scheduler {
             } catch (IOException e) {
                 System.out.println("Please try again!");
             }
-            // split the user input by spaces
-            String[] tokens = response.split(" ");
-            // check if input exists
-            if (tokens.length == 0) {
-                System.out.println("Please try again!");
-                continue;
+            if (response == null) {
+                // end of input
+                Storage.shutdown();
+                return;
             }
-            // determine which operation to perform
-            String operation = tokens[0];
-            if (operation.equals("create_patient")) {
-                createPatient(tokens);
-            } else if (operation.equals("create_caregiver")) {
-                createCaregiver(tokens);
-            } else if (operation.equals("login_patient")) {
-                loginPatient(tokens);
-            } else if (operation.equals("login_caregiver")) {
-                loginCaregiver(tokens);
-            } else if (operation.equals("search_caregiver_schedule")) {
-                searchCaregiverSchedule(tokens);
-            } else if (operation.equals("reserve")) {
-                reserve(tokens);
-            } else if (operation.equals("upload_availability")) {
-                uploadAvailability(tokens);
-            } else if (operation.equals("cancel")) {
-                cancel(tokens);
-            } else if (operation.equals("add_doses")) {
-                addDoses(tokens);
-            } else if (operation.equals("show_appointments")) {
-                showAppointments(tokens);
-            } else if (operation.equals("logout")) {
-                logout(tokens);
-            } else if (operation.equals("quit")) {
-                System.out.println("Bye!");
+            if (!execute(response, session)) {
+                Storage.shutdown();
                 return;
-            } else {
-                System.out.println("Invalid operation name!");
             }
         }
     }
 
-    private static void createPatient(String[] tokens) {
-        String username = tokens[1];
-        String password = tokens[2];
-        // check 1: the length for tokens need to be exactly 3 to include all information (with the operation name)
-        if (tokens.length != 3) {
-            System.out.println("Failed to create user.");
+    private static void runScript(String file) {
+        if (!startup()) {
+            Storage.shutdown();
             return;
         }
-        // check if the username has been taken already
-        if (usernameExistsPatient(username)) {
-            System.out.println("Username taken, try again!");
-            return;
+        PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16),
+                false, StandardCharsets.UTF_8);
+        BatchRunner runner = new BatchRunner(out,
+                Util.intSetting("BatchThreads", Runtime.getRuntime().availableProcessors()));
+        try (BufferedReader in = file != null
+                ? Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)
+                : new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))) {
+            runner.run(in);
+        } catch (IOException e) {
+            out.println("Could not read " + (file != null ? file : "the script") + ": " + e.getMessage());
+        } finally {
+            out.flush();
+            Storage.shutdown();
         }
-        byte[] salt = Util.generateSalt();
-        byte[] hash = Util.generateHash(password, salt);
-        // create the Patient
+    }
+
+    // process-wide initialization shared by the interactive and server modes;
+    // returns false if the scheduler must not start
+    public static boolean startup() {
         try {
-            currentPatient = new Patient.PatientBuilder(username, salt, hash).build();
-            // save to Patient information to our database
-            currentPatient.saveToDB();
-            System.out.println("Created Patient user " + username);
+            Storage.backend().initialize();
+        } catch (SchemaMigrator.SchemaBehindException e) {
+            // including why the upgrade failed, if one was attempted
+            for (Throwable cause : e.getSuppressed()) {
+                System.out.println(cause.getMessage());
+            }
+            System.out.println(e.getMessage());
+            return false;
         } catch (SQLException e) {
-            System.out.println("Failed to create Patient user.");
-            e.printStackTrace();
+            // the database may just be unreachable for now; commands will report their own errors
+            System.out.println("Could not prepare the database schema: " + e.getMessage());
+        }
+        try {
+            AvailabilityIndex.getInstance().load();
+        } catch (SQLException e) {
+            // searches fall back to querying the database
+            System.out.println("Could not load caregiver availability, searches will query the database.");
+        }
+        try {
+            UsernameFilter.loadAll();
+        } catch (SQLException e) {
+            // every username check goes to the database
+            System.out.println("Could not load usernames, username checks will query the database.");
+        }
+        try {
+            VaccineCache.getInstance().load();
+        } catch (SQLException e) {
+            // inventory reads go to the database until a reconciliation succeeds
+            System.out.println("Could not load the vaccine inventory, it will be read from the database.");
         }
+        VaccineCache.getInstance().startReconciling(Util.intSetting("VaccineReconcileSeconds", 60));
+        // MetricsFile=<path> dumps the command metrics there every MetricsIntervalSeconds
+        String metricsFile = System.getenv("MetricsFile");
+        if (metricsFile != null && !metricsFile.isEmpty()) {
+            Metrics.startDump(metricsFile, Util.intSetting("MetricsIntervalSeconds", 60));
+        }
+        return true;
     }
 
-    private static boolean usernameExistsPatient(String username) {
-        ConnectionManager cm = new ConnectionManager();
-        Connection con = cm.createConnection();
+    static void printMenu(PrintStream out) {
+        out.println("*** Please enter one of the following commands ***");
+        out.println("> create_patient <username> <password>");
+        out.println("> create_caregiver <username> <password>");
+        out.println("> login_patient <username> <password>");
+        out.println("> login_caregiver <username> <password>");
+        out.println("> login_patient <token>");
+        out.println("> login_caregiver <token>");
+        out.println("> search_caregiver_schedule <date>");
+        out.println("> reserve <date> <vaccine>");
+        out.println("> upload_availability <date> [HH:MM-HH:MM]");
+        out.println("> upload_availability <from> <to> [weekday-mask] [HH:MM-HH:MM]");
+        out.println("> cancel <appointment_id>");
+        out.println("> add_doses <vaccine> <number> [<vaccine> <number> ...]");
+        out.println("> show_appointments [--after <id>] [--limit <n>] [--from <date>] [--to <date>]");
+        out.println("> import <caregivers|patients|availability|vaccines> <file.csv> [chunk_size]");
+        out.println("> stats");
+        out.println("> logout [--keep-token]");
+        out.println("> quit");
+        out.println();
+    }
 
-        String selectUsername = "SELECT * FROM Patient WHERE Username = ?";
+    // runs one command line for the session; returns false when the session asked to quit
+    public static boolean execute(String response, Session session) {
+        session.touch();
+        // split the user input by spaces
+        CommandLine line = LINES.get().parse(response);
+        // check if input exists
+        if (line.size() == 0) {
+            session.out.println("Please try again!");
+            return true;
+        }
+        // determine which operation to perform
+        Command command = COMMANDS.find(line);
+        // every command is timed; unknown ones share a single entry
+        String name = command != null ? command.getName() : "invalid";
+        CommandEvent event = new CommandEvent();
+        event.begin();
+        Metrics.begin(name);
         try {
-            PreparedStatement statement = con.prepareStatement(selectUsername);
-            statement.setString(1, username);
-            ResultSet resultSet = statement.executeQuery();
-            // returns false if the cursor is not before the first record or if there are no rows in the ResultSet.
-            return resultSet.isBeforeFirst();
-        } catch (SQLException e) {
-            System.out.println("Error occurred when checking username");
-            e.printStackTrace();
+            if (command == null) {
+                session.out.println("Invalid operation name!");
+                return true;
+            }
+            // every handler can rely on its tokens being there
+            if (!command.accepts(line.size())) {
+                session.out.println(command.getUsageError());
+                return true;
+            }
+            command.run(line, session);
+            return !command.endsSession();
+        } catch (RuntimeException e) {
+            Metrics.failure();
+            throw e;
         } finally {
-            cm.closeConnection();
+            session.touch();
+            event.command = name;
+            event.failed = Metrics.end();
+            event.commit();
         }
-        return true;
     }
 
-    private static void createCaregiver(String[] tokens) {
-        // create_caregiver <username> <password>
-        // check 1: the length for tokens need to be exactly 3 to include all information (with the operation name)
-        if (tokens.length != 3) {
-            System.out.println("Failed to create user.");
+    private static void createPatient(CommandLine line, Session session) {
+        // create_patient <username> <password>
+        String username = line.token(1);
+        String password = line.token(2);
+        // check if the username has been taken already
+        if (usernameExistsPatient(username, session)) {
+            session.out.println("Username taken, try again!");
             return;
         }
-        String username = tokens[1];
-        String password = tokens[2];
-        // check 2: check if the username has been taken already
-        if (usernameExistsCaregiver(username)) {
-            System.out.println("Username taken, try again!");
+        byte[] salt = Util.generateSalt();
+        byte[] hash = PasswordHasher.getInstance().hash(password, salt);
+        // create the Patient
+        try {
+            Patient patient = new Patient.PatientBuilder(username, salt, hash).build();
+            // save to Patient information to our database, and only then log in as them
+            patient.saveToDB();
+            session.loginAs(patient);
+            session.out.println("Created Patient user " + username);
+        } catch (SQLException e) {
+            session.out.println("Failed to create Patient user.");
+            e.printStackTrace();
+            Metrics.failure();
+        }
+    }
+
+    private static boolean usernameExistsPatient(String username, Session session) {
+        return usernameExists(UsernameFilter.patients(), Storage.backend().patients(), username, session);
+    }
+
+    private static void createCaregiver(CommandLine line, Session session) {
+        // create_caregiver <username> <password>
+        String username = line.token(1);
+        String password = line.token(2);
+        // check if the username has been taken already
+        if (usernameExistsCaregiver(username, session)) {
+            session.out.println("Username taken, try again!");
             return;
         }
         byte[] salt = Util.generateSalt();
-        byte[] hash = Util.generateHash(password, salt);
+        byte[] hash = PasswordHasher.getInstance().hash(password, salt);
         // create the caregiver
         try {
-            currentCaregiver = new Caregiver.CaregiverBuilder(username, salt, hash).build();
-            // save to caregiver information to our database
-            currentCaregiver.saveToDB();
-            System.out.println("Created user " + username);
+            Caregiver caregiver = new Caregiver.CaregiverBuilder(username, salt, hash).build();
+            // save to caregiver information to our database, and only then log in as them
+            caregiver.saveToDB();
+            session.loginAs(caregiver);
+            session.out.println("Created user " + username);
         } catch (SQLException e) {
-            System.out.println("Failed to create user.");
+            session.out.println("Failed to create user.");
             e.printStackTrace();
+            Metrics.failure();
         }
     }
 
-    private static boolean usernameExistsCaregiver(String username) {
-        ConnectionManager cm = new ConnectionManager();
-        Connection con = cm.createConnection();
+    private static boolean usernameExistsCaregiver(String username, Session session) {
+        return usernameExists(UsernameFilter.caregivers(), Storage.backend().caregivers(), username, session);
+    }
 
-        String selectUsername = "SELECT * FROM Caregivers WHERE Username = ?";
+    private static boolean usernameExists(UsernameFilter filter, UserRepository users, String username,
+                                          Session session) {
+        // most new names are free, and the filter says so without asking the store
+        if (!filter.mightContain(username)) {
+            return false;
+        }
         try {
-            PreparedStatement statement = con.prepareStatement(selectUsername);
-            statement.setString(1, username);
-            ResultSet resultSet = statement.executeQuery();
-            // returns false if the cursor is not before the first record or if there are no rows in the ResultSet.
-            return resultSet.isBeforeFirst();
+            return users.exists(username);
         } catch (SQLException e) {
-            System.out.println("Error occurred when checking username");
+            session.out.println("Error occurred when checking username");
             e.printStackTrace();
-        } finally {
-            cm.closeConnection();
+            Metrics.failure();
         }
         return true;
     }
 
-    private static void loginPatient(String[] tokens) {
-        if (tokens.length != 3) {
-            System.out.println("Please try again!");
+    private static void loginPatient(CommandLine line, Session session) {
+        // login_patient <username> <password>
+        // login_patient <token>
+        // check 1: if someone's already logged-in, they need to log out first
+        if (session.getCaregiver() != null || session.getPatient() != null) {
+            session.out.println("User already logged in.");
             return;
         }
-        if (currentPatient != null || currentPatient != null) {
-            System.out.println("This patient is already logged in.");
+        if (line.size() == 2) {
+            // a token from an earlier login skips the store and the hash
+            Patient patient = SessionTokens.patients().find(line.token(1));
+            if (patient == null) {
+                session.out.println("Login failed.");
+                return;
+            }
+            session.out.println("Logged in as: " + patient.getUsername());
+            session.loginAs(patient);
+            session.setToken(line.token(1));
             return;
         }
 
-        String username = tokens[1];
-        String password = tokens[2];
+        String username = line.token(1);
+        String password = line.token(2);
 
         Patient patient = null;
         try {
             patient = new Patient.PatientGetter(username, password).get();
         } catch (SQLException e) {
-            System.out.println("Login failed.");
+            session.out.println("Login failed.");
             e.printStackTrace();
+            Metrics.failure();
         }
         // check if the login was successful
         if (patient == null) {
-            System.out.println("Login failed.");
+            session.out.println("Login failed.");
         } else {
-            System.out.println("Logged in as: " + username);
-            currentPatient = patient;
+            session.out.println("Logged in as: " + username);
+            session.loginAs(patient);
+            issueToken(SessionTokens.patients(), patient, session);
         }
     }
 
-    private static void loginCaregiver(String[] tokens) {
+    private static void loginCaregiver(CommandLine line, Session session) {
         // login_caregiver <username> <password>
         // check 1: if someone's already logged-in, they need to log out first
-        if (currentCaregiver != null || currentPatient != null) {
-            System.out.println("User already logged in.");
+        if (session.getCaregiver() != null || session.getPatient() != null) {
+            session.out.println("User already logged in.");
             return;
         }
-        // check 2: the length for tokens need to be exactly 3 to include all information (with the operation name)
-        if (tokens.length != 3) {
-            System.out.println("Login failed.");
+        // check 2: a token from an earlier login skips the store and the hash
+        if (line.size() == 2) {
+            Caregiver caregiver = SessionTokens.caregivers().find(line.token(1));
+            if (caregiver == null) {
+                session.out.println("Login failed.");
+                return;
+            }
+            session.out.println("Logged in as: " + caregiver.getUsername());
+            session.loginAs(caregiver);
+            session.setToken(line.token(1));
             return;
         }
-        String username = tokens[1];
-        String password = tokens[2];
+        String username = line.token(1);
+        String password = line.token(2);
 
         Caregiver caregiver = null;
         try {
             caregiver = new Caregiver.CaregiverGetter(username, password).get();
         } catch (SQLException e) {
-            System.out.println("Login failed.");
+            session.out.println("Login failed.");
             e.printStackTrace();
+            Metrics.failure();
         }
         // check if the login was successful
         if (caregiver == null) {
-            System.out.println("Login failed.");
+            session.out.println("Login failed.");
         } else {
-            System.out.println("Logged in as: " + username);
-            currentCaregiver = caregiver;
+            session.out.println("Logged in as: " + username);
+            session.loginAs(caregiver);
+            issueToken(SessionTokens.caregivers(), caregiver, session);
         }
     }
 
-    private static void searchCaregiverSchedule(String[] tokens) {
-        ConnectionManager cm = new ConnectionManager();
-        Connection con = cm.createConnection();
+    private static <T> void issueToken(SessionTokens<T> tokens, T user, Session session) {
+        session.setToken(tokens.issue(user));
+        session.out.println("Session token: " + session.getToken() + " (log in with it for the next "
+                + tokens.getTtlSeconds() / 60 + " minutes, or until logout)");
+    }
+
+    private static void searchCaregiverSchedule(CommandLine line, Session session) {
         // check 1: if someone is not logged-in, they need to log in first
-        if (currentCaregiver == null && currentPatient == null) {
-            System.out.println("Please login first!");
+        if (session.getCaregiver() == null && session.getPatient() == null) {
+            session.out.println("Please login first!");
             return;
         }
-        String date = tokens[1];
-
-        if (tokens.length != 2) {
-            System.out.println("Login failed.");
+        int day;
+        try {
+            day = (int) line.epochDay(1);
+        } catch (IllegalArgumentException e) {
+            session.out.println("Please enter a valid date!");
             return;
         }
 
-
-        String findAvailabilities = "SELECT a.username, v.Name, v.Doses FROM Availabilities a, Vaccines v WHERE Time = ? ORDER By a.username";
+        // answer from the in-memory index when it is available, and skip the store
+        // entirely when nobody is free that day
+        AvailabilityIndex index = AvailabilityIndex.getInstance();
         try {
-            Date d = Date.valueOf(date);
-            PreparedStatement statement = con.prepareStatement(findAvailabilities);
-            statement.setString(1, tokens[1]);
-            ResultSet resultSet = statement.executeQuery();
-            while (resultSet.next()) {
-                String username = resultSet.getString("username");
-                String Name = resultSet.getString("Name");
-                int Doses = resultSet.getInt("Doses");
-                System.out.println("Current Availability:" + username + ", " + Name + ", " + Doses);
+            List<String> caregivers = index.isLoaded()
+                    ? index.caregiversOn(day)
+                    : Storage.backend().availabilities().caregiversOn(Date.valueOf(LocalDate.ofEpochDay(day)));
+            if (caregivers.isEmpty()) {
+                session.out.println("No Caregiver is available!");
+                return;
             }
-            return;
+            // the caregivers and the inventory are independent, so they are reported side by side
+            // rather than as every caregiver-vaccine pair
+            StringBuilder result = new StringBuilder("Available caregivers: ");
+            result.append(String.join(", ", caregivers));
+            result.append(System.lineSeparator()).append("Vaccine inventory: ");
+            Map<String, Integer> vaccines = VaccineCache.getInstance().listAll();
+            if (vaccines.isEmpty()) {
+                result.append("none");
+            }
+            boolean first = true;
+            for (Map.Entry<String, Integer> vaccine : vaccines.entrySet()) {
+                if (!first) {
+                    result.append(", ");
+                }
+                result.append(vaccine.getKey()).append(' ').append(vaccine.getValue());
+                first = false;
+            }
+            session.out.println(result);
         } catch (SQLException e) {
-            System.out.println("Please try again!");
+            session.out.println("Please try again!");
             e.printStackTrace();
-        } finally {
-            cm.closeConnection();
+            Metrics.failure();
         }
     }
 
-    private static void reserve(String[] tokens) {
-        ConnectionManager cm = new ConnectionManager();
-        Connection con = cm.createConnection();
-        if (tokens.length != 3) {
-            System.out.println("Please try again!");
+    private static void reserve(CommandLine line, Session session) {
+        // reserve <date> <vaccine>
+        if (session.getCaregiver() == null && session.getPatient() == null) {
+            session.out.println("Please login first!");
             return;
         }
-
-        if (currentCaregiver == null && currentPatient == null) {
-            System.out.println("Please login first!");
-            return;
-        }
-        if (currentPatient == null) {
-            System.out.println("Please login as a patient first!");
+        if (session.getPatient() == null) {
+            session.out.println("Please login as a patient first!");
             return;
         }
 
-        String date = tokens[1];
-        String inputvaccinename = tokens[2];
+        String inputvaccinename = line.token(2);
 
-        Random random = new Random();
-        int x = random.nextInt(900) + 100;
-
-        String Appointmentfinder = "SELECT a.Time, a.username, v.Name, v.Doses FROM Availabilities a, Vaccines v WHERE Time = ? and Name = ? and Doses > 0";
         try {
-            Date d = Date.valueOf(date);
-            PreparedStatement statement = con.prepareStatement(Appointmentfinder);
-            statement.setString(1, tokens[1]);
-            statement.setString(2, tokens[2]);
-            ResultSet resultSet = statement.executeQuery();
-            while (resultSet.next()) {
-                String time = resultSet.getString("time");
-                String username = resultSet.getString("username");
-                if (username == null) {
-                    System.out.println("No Caregiver is available!");
-                    return;
-                }
-                String Name = resultSet.getString("Name");
-                if (tokens[2] == null) {
-                    System.out.println("Not enough available doses!");
-                    return;
-                }
-                System.out.println("Appointment ID: " + x + " Caregiver username: " + username);
-                String addAppointment = "INSERT INTO Appointment " + "VALUES ('" + x + "', '" + time + "', '" + currentPatient.getUsername() + "', '" + username + "', '" + Name +"')";
-                try {
-                    PreparedStatement statement2 = con.prepareStatement(addAppointment);
-                    statement2.executeUpdate();
-                } catch (SQLException e) {
-                    System.out.println("Please try again!");
-                    e.printStackTrace();
-                }
-                String dropAvailabilities = "DELETE FROM Availabilities WHERE Username = '" + username + "'";
-                try {
-                    PreparedStatement statement3 = con.prepareStatement(dropAvailabilities);
-                    statement3.executeUpdate();
-                } catch (SQLException e) {
-                    System.out.println("Please try again!");
-                    e.printStackTrace();
-                }
-                Vaccine vaccine = null;
-                try {
-                    vaccine = new Vaccine.VaccineGetter(inputvaccinename).get();
-                } catch (SQLException e) {
-                    System.out.println("Error occurred when adding doses");
-                    e.printStackTrace();
-                }
-                try {
-                    vaccine.decreaseAvailableDoses(1);
-                } catch (SQLException e) {
-                    System.out.println("Please try again!");
-                    e.printStackTrace();
-                }
+            Date d = line.date(1);
+            Reservation reservation = Storage.backend().appointments()
+                    .reserve(d, inputvaccinename, session.getPatient().getUsername());
+            switch (reservation.getOutcome()) {
+                case RESERVED:
+                    if (reservation.isDayFull()) {
+                        AvailabilityIndex.getInstance().remove(d, reservation.getCaregiver());
+                    }
+                    VaccineCache.getInstance().add(inputvaccinename, -1);
+                    session.out.println("Appointment ID: " + reservation.getAppointmentId()
+                            + " Caregiver username: " + reservation.getCaregiver()
+                            + " Time: " + DaySlots.time(reservation.getSlot()));
+                    break;
+                case NO_CAREGIVER:
+                    session.out.println("No Caregiver is available!");
+                    break;
+                case NO_DOSES:
+                    session.out.println("Not enough available doses!");
+                    break;
             }
-            return;
+        } catch (IllegalArgumentException e) {
+            session.out.println("Please enter a valid date!");
         } catch (SQLException e) {
-            System.out.println("Please try again!");
+            session.out.println("Please try again!");
             e.printStackTrace();
-        } finally {
-            cm.closeConnection();
+            Metrics.failure();
         }
-
-
     }
 
-    private static void uploadAvailability(String[] tokens) {
-        ConnectionManager cm = new ConnectionManager();
-        Connection con = cm.createConnection();
-        // upload_availability <date>
+    private static void uploadAvailability(CommandLine line, Session session) {
+        // upload_availability <date> [HH:MM-HH:MM]
+        // upload_availability <from> <to> [weekday-mask] [HH:MM-HH:MM]
         // check 1: check if the current logged-in user is a caregiver
-        if (currentCaregiver == null) {
-            System.out.println("Please login as a caregiver first!");
+        if (session.getCaregiver() == null) {
+            session.out.println("Please login as a caregiver first!");
             return;
         }
-        // check 2: the length for tokens need to be exactly 2 to include all information (with the operation name)
-        if (tokens.length != 2) {
-            System.out.println("Please try again!");
+        // the hours, when given, are the last token and the only one with a ':'
+        int tokens = line.size();
+        DaySlots hours = DaySlots.DEFAULT_HOURS;
+        if (tokens > 2 && line.token(tokens - 1).indexOf(':') >= 0) {
+            try {
+                hours = DaySlots.parseHours(line.token(tokens - 1));
+            } catch (IllegalArgumentException e) {
+                session.out.println("Please enter hours like 09:00-17:00, on " + DaySlots.SLOT_MINUTES
+                        + "-minute boundaries!");
+                return;
+            }
+            tokens--;
+        }
+        if (tokens == 3 || tokens == 4) {
+            uploadAvailabilityRange(line, tokens, hours, session);
+            return;
+        }
+        if (tokens != 2) {
+            session.out.println("Please try again!");
             return;
         }
-        String date = tokens[1];
-
-        String testAvailabilities = "SELECT app.ID, app.Carename FROM Appointment app WHERE Time = ? and Carename = '" + currentCaregiver.getUsername() + "'";
         try {
-            PreparedStatement statement3 = con.prepareStatement(testAvailabilities);
-            statement3.setString(1, tokens[1]);
-            ResultSet resultSet = statement3.executeQuery();
-            while (resultSet.next()) {
-                String username = resultSet.getString("Carename");
-                System.out.println( username + " already has a appointment on " + date);
-                return;
-            }
-            Date d = Date.valueOf(date);
-            currentCaregiver.uploadAvailability(d);
-            System.out.println("Availability uploaded!");
+            Date d = line.date(1);
+            // slots the caregiver is already booked in stay closed
+            DaySlots free = session.getCaregiver().uploadAvailability(List.of(d), hours).get(d);
+            session.out.println("Availability uploaded! " + free.count() + " free slots on " + d);
         } catch (IllegalArgumentException e) {
-            System.out.println("Please enter a valid date!");
+            session.out.println("Please enter a valid date!");
         } catch (SQLException e) {
-            System.out.println("Error occurred when uploading availability");
+            session.out.println("Error occurred when uploading availability");
             e.printStackTrace();
+            Metrics.failure();
         }
     }
 
-    private static void cancel(String[] tokens) {
-        ConnectionManager cm = new ConnectionManager();
-        Connection con = cm.createConnection();
-        // check 1: if someone is not logged-in, they need to log in first
-        if (currentCaregiver == null && currentPatient == null) {
-            System.out.println("Please login first!");
+    private static void uploadAvailabilityRange(CommandLine line, int tokens, DaySlots hours, Session session) {
+        LocalDate from;
+        LocalDate to;
+        try {
+            from = LocalDate.ofEpochDay(line.epochDay(1));
+            to = LocalDate.ofEpochDay(line.epochDay(2));
+        } catch (IllegalArgumentException e) {
+            session.out.println("Please enter a valid date!");
             return;
         }
-
-
-        if (tokens.length != 2) {
-            System.out.println("Please try again!");
+        if (to.isBefore(from) || ChronoUnit.DAYS.between(from, to) >= MAX_UPLOAD_DAYS) {
+            session.out.println("Please enter a range of at most " + MAX_UPLOAD_DAYS + " days!");
+            return;
+        }
+        // the mask has one character per weekday, Monday first: 1111100 is weekdays only
+        String mask = tokens == 4 ? line.token(3) : "1111111";
+        if (!isWeekdayMask(mask)) {
+            session.out.println("Please enter a weekday mask like 1111100 (Monday first)!");
             return;
         }
 
-        String ID = tokens[1];
-
-        String findAvailabilities = "SELECT * FROM Appointment app, Vaccines v WHERE ID = ? ";
+        List<Date> days = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            if (mask.charAt(day.getDayOfWeek().getValue() - 1) == '1') {
+                days.add(Date.valueOf(day));
+            }
+        }
+        if (days.isEmpty()) {
+            session.out.println("No days to upload!");
+            return;
+        }
         try {
-            PreparedStatement statement = con.prepareStatement(findAvailabilities);
-            statement.setString(1, tokens[1]);
-            ResultSet resultSet = statement.executeQuery();
-            while (resultSet.next()) {
-                String Carename = resultSet.getString("Carename");
-                String vaccines = resultSet.getString("vaccines");
-                String Time = resultSet.getString("Time");
-                String Patname = resultSet.getString("Patname");
-                if (currentPatient != null) {
-                    String patient = currentPatient.getUsername();
-                    if (Patname.equals(patient)) {
-                        String dropAvailabilities = "DELETE FROM Appointment WHERE ID = '" + ID + "'";
-                        try {
-                            PreparedStatement statement3 = con.prepareStatement(dropAvailabilities);
-                            statement3.executeUpdate();
-                        } catch (SQLException e) {
-                            System.out.println("Please try again!");
-                            e.printStackTrace();
-                        }
-                        String addAppointment = "INSERT INTO Availabilities " + "VALUES ('" + Time + "', '" + Carename + "')";
-                        try {
-                            PreparedStatement statement2 = con.prepareStatement(addAppointment);
-                            statement2.executeUpdate();
-                            System.out.println("Your Appointment" + ID + "has been successfully cancel");
-                        } catch (SQLException e) {
-                            System.out.println("Please try again!");
-                            e.printStackTrace();
-                        }
-
-                        Vaccine vaccine = null;
-                        try {
-                            vaccine = new Vaccine.VaccineGetter(vaccines).get();
-                        } catch (SQLException e) {
-                            System.out.println("Error occurred when adding doses");
-                            e.printStackTrace();
-                        }
-                        try {
-                            vaccine.increaseAvailableDoses(1);
-                        } catch (SQLException e) {
-                            System.out.println("Please try again!");
-                            e.printStackTrace();
-                        }  finally {
-                        cm.closeConnection();
-                    }
-                    }
-                    return;
-                } else {
-                    System.out.println("This is not your appointment, please log in as the Caregiver or Patient to cancel this Appointment");
+            // the same merge as a single day, for every day in one round trip: days already
+            // published gain the new slots and slots the caregiver is booked in stay closed
+            Map<Date, DaySlots> free = session.getCaregiver().uploadAvailability(days, hours);
+            int full = 0;
+            for (DaySlots slots : free.values()) {
+                if (slots.isEmpty()) {
+                    full++;
                 }
-                    if (currentCaregiver != null) {
-                        String cargiver = currentCaregiver.getUsername();
-                        if (Carename.equals(cargiver)) {
-                            String dropAvailabilities = "DELETE FROM Appointment WHERE ID = '" + ID + "'";
-                            try {
-                                PreparedStatement statement3 = con.prepareStatement(dropAvailabilities);
-                                statement3.executeUpdate();
-                            } catch (SQLException e) {
-                                System.out.println("Please try again!");
-                                e.printStackTrace();
-                            }
-                            String addAppointment = "INSERT INTO Availabilities " + "VALUES ('" + Time + "', '" + Carename + "')";
-                            try {
-                                PreparedStatement statement2 = con.prepareStatement(addAppointment);
-                                statement2.executeUpdate();
-                                System.out.println("Your Appointment" + ID + "has been successfully cancel");
-                            } catch (SQLException e) {
-                                System.out.println("Please try again!");
-                                e.printStackTrace();
-                            }
-
-                            Vaccine vaccine = null;
-                            try {
-                                vaccine = new Vaccine.VaccineGetter(vaccines).get();
-                            } catch (SQLException e) {
-                                System.out.println("Error occurred when adding doses");
-                                e.printStackTrace();
-                            }
-                            try {
-                                vaccine.increaseAvailableDoses(1);
-                            } catch (SQLException e) {
-                                System.out.println("Please try again!");
-                                e.printStackTrace();
-                            } finally {
-                            cm.closeConnection();
-                        }
-                        }
-                        return;
-                    } else {
-                        System.out.println("This is not your appointment, please log in as the Caregiver or Patient to cancel this Appointment");
-                    }
+            }
+            session.out.println("Availability uploaded for " + days.size() + " days!");
+            if (full > 0) {
+                session.out.println(full + " days have no free slots left");
             }
         } catch (SQLException e) {
-            System.out.println("Please try again!");
+            session.out.println("Error occurred when uploading availability");
             e.printStackTrace();
+            Metrics.failure();
         }
-        return;
     }
 
-    private static void addDoses(String[] tokens) {
-        // add_doses <vaccine> <number>
-        // check 1: check if the current logged-in user is a caregiver
-        if (currentCaregiver == null) {
-            System.out.println("Please login as a caregiver first!");
-            return;
+    private static boolean isWeekdayMask(String mask) {
+        if (mask.length() != 7) {
+            return false;
+        }
+        for (int i = 0; i < 7; i++) {
+            if (mask.charAt(i) != '0' && mask.charAt(i) != '1') {
+                return false;
+            }
         }
-        // check 2: the length for tokens need to be exactly 3 to include all information (with the operation name)
-        if (tokens.length != 3) {
-            System.out.println("Please try again!");
+        return true;
+    }
+
+    private static void cancel(CommandLine line, Session session) {
+        // check 1: if someone is not logged-in, they need to log in first
+        if (session.getCaregiver() == null && session.getPatient() == null) {
+            session.out.println("Please login first!");
             return;
         }
-        String vaccineName = tokens[1];
-        int doses = Integer.parseInt(tokens[2]);
-        Vaccine vaccine = null;
+
+        String ID = line.token(1);
+
         try {
-            vaccine = new Vaccine.VaccineGetter(vaccineName).get();
+            Appointment appointment = Storage.backend().appointments().find(line.longArg(1));
+            if (appointment == null) {
+                return;
+            }
+            boolean own = (session.getPatient() != null
+                    && appointment.getPatient().equals(session.getPatient().getUsername()))
+                    || (session.getCaregiver() != null
+                    && appointment.getCaregiver().equals(session.getCaregiver().getUsername()));
+            if (!own) {
+                session.out.println("This is not your appointment, please log in as the Caregiver or Patient to cancel this Appointment");
+                return;
+            }
+            // the appointment, the caregiver's day and the dose are restored together
+            if (Storage.backend().appointments().cancel(appointment.getId())) {
+                AvailabilityIndex.getInstance().add(appointment.getTime(), appointment.getCaregiver());
+                VaccineCache.getInstance().add(appointment.getVaccine(), 1);
+                session.out.println("Your Appointment" + ID + "has been successfully cancel");
+            }
+        } catch (NumberFormatException e) {
+            session.out.println("Please enter a valid appointment ID!");
         } catch (SQLException e) {
-            System.out.println("Error occurred when adding doses");
+            session.out.println("Please try again!");
             e.printStackTrace();
+            Metrics.failure();
         }
-        // check 3: if getter returns null, it means that we need to create the vaccine and insert it into the Vaccines
-        //          table
-        if (vaccine == null) {
+    }
+
+    private static void addDoses(CommandLine line, Session session) {
+        // add_doses <vaccine> <number> [<vaccine> <number> ...]
+        // check 1: check if the current logged-in user is a caregiver
+        if (session.getCaregiver() == null) {
+            session.out.println("Please login as a caregiver first!");
+            return;
+        }
+        // check 2: the tokens need to be the operation name followed by <vaccine> <number> pairs
+        if (line.size() % 2 != 1) {
+            session.out.println("Please try again!");
+            return;
+        }
+        Map<String, Integer> shipment = new LinkedHashMap<>();
+        for (int i = 1; i < line.size(); i += 2) {
+            int doses;
             try {
-                vaccine = new Vaccine.VaccineBuilder(vaccineName, doses).build();
-                vaccine.saveToDB();
-            } catch (SQLException e) {
-                System.out.println("Error occurred when adding doses");
-                e.printStackTrace();
+                doses = line.intArg(i + 1);
+            } catch (NumberFormatException e) {
+                session.out.println("Please try again!");
+                return;
             }
-        } else {
-            // if the vaccine is not null, meaning that the vaccine already exists in our table
-            try {
-                vaccine.increaseAvailableDoses(doses);
-            } catch (SQLException e) {
-                System.out.println("Error occurred when adding doses");
-                e.printStackTrace();
+            if (doses <= 0) {
+                session.out.println("Please try again!");
+                return;
             }
+            shipment.merge(line.token(i), doses, Integer::sum);
+        }
+        // the whole shipment lands in one statement; vaccines not in the table yet are created
+        try {
+            Vaccine.adjustDoses(shipment);
+        } catch (SQLException e) {
+            session.out.println("Error occurred when adding doses");
+            e.printStackTrace();
+            Metrics.failure();
+            return;
         }
-        System.out.println("Doses updated!");
+        session.out.println("Doses updated!");
     }
 
-    private static void showAppointments(String[] tokens) {
-        ConnectionManager cm = new ConnectionManager();
-        Connection con = cm.createConnection();
+    private static void showAppointments(CommandLine line, Session session) {
         // check 1: if someone is not logged-in, they need to log in first
-        if (currentCaregiver == null && currentPatient == null) {
-            System.out.println("Please login first!");
+        if (session.getCaregiver() == null && session.getPatient() == null) {
+            session.out.println("Please login first!");
             return;
         }
 
-        if (currentCaregiver != null) {
-            String printCAppointments = "SELECT app.ID , app.vaccines, app.Time, app.Patname FROM Appointment app Where app.Carename = '" + currentCaregiver.getUsername() + "' ORDER By app.ID";
-            try {
-                PreparedStatement statement1 = con.prepareStatement(printCAppointments);
-                ResultSet resultSet = statement1.executeQuery();
-                while (resultSet.next()) {
-                    int ID = resultSet.getInt("ID");
-                    String vaccines = resultSet.getString("vaccines");
-                    String Time = resultSet.getString("Time");
-                    String patname = resultSet.getString("Patname");
-                    System.out.println("Current Appointment: " + ID + ", " + vaccines + ", " + Time + "," + patname);
+        // show_appointments [--after <id>] [--limit <n>] [--from <date>] [--to <date>]
+        // check 2: options come in flag/value pairs
+        if (line.size() % 2 != 1) {
+            session.out.println("Please try again!");
+            return;
+        }
+        long after = AppointmentPage.FIRST;
+        int limit = AppointmentPage.UNLIMITED;
+        Date from = null;
+        Date to = null;
+        try {
+            for (int i = 1; i < line.size(); i += 2) {
+                if (line.tokenEquals(i, "--after")) {
+                    after = line.longArg(i + 1);
+                } else if (line.tokenEquals(i, "--limit")) {
+                    limit = line.intArg(i + 1);
+                    if (limit <= 0) {
+                        session.out.println("Please enter a positive limit!");
+                        return;
+                    }
+                } else if (line.tokenEquals(i, "--from")) {
+                    from = line.date(i + 1);
+                } else if (line.tokenEquals(i, "--to")) {
+                    to = line.date(i + 1);
+                } else {
+                    session.out.println("Please try again!");
+                    return;
                 }
-            } catch (SQLException e) {
-                System.out.println("Please try again!");
-                e.printStackTrace();
-            } finally {
-                cm.closeConnection();
             }
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException is an IllegalArgumentException too
+            session.out.println("Please try again!");
+            return;
         }
+        AppointmentPage page = new AppointmentPage(after, limit, from, to);
+
+        // rows are printed as they stream in; the line buffer is reused for every row
+        boolean asCaregiver = session.getCaregiver() != null;
+        StringBuilder row = new StringBuilder(96);
+        long[] last = {after};
+        Consumer<Appointment> printer = appointment -> {
+            row.setLength(0);
+            row.append("Current Appointment: ").append(appointment.getId())
+                    .append(", ").append(appointment.getVaccine())
+                    .append(", ").append(appointment.getTime());
+            if (appointment.getSlot() != Appointment.NO_SLOT) {
+                row.append(' ').append(DaySlots.time(appointment.getSlot()));
+            }
+            row.append(',').append(asCaregiver ? appointment.getPatient() : appointment.getCaregiver());
+            session.out.println(row);
+            last[0] = appointment.getId();
+        };
+        try {
+            int shown = asCaregiver
+                    ? Storage.backend().appointments()
+                            .forEachForCaregiver(session.getCaregiver().getUsername(), page, printer)
+                    : Storage.backend().appointments()
+                            .forEachForPatient(session.getPatient().getUsername(), page, printer);
+            if (shown == limit) {
+                // a full page: tell the user how to get the next one
+                session.out.println("More appointments may follow: show_appointments --after " + last[0]
+                        + " --limit " + limit
+                        + (from != null ? " --from " + from : "") + (to != null ? " --to " + to : ""));
+            }
+        } catch (SQLException e) {
+            session.out.println("Please try again!");
+            e.printStackTrace();
+            Metrics.failure();
+        }
+    }
 
-        if (currentPatient != null) {
-            String printPAppointments = "SELECT app.ID , app.vaccines, app.Time, app.Carename FROM Appointment app WHERE app.Patname = '" + currentPatient.getUsername() + "' ORDER By app.ID";
+    private static void importCsv(CommandLine line, Session session) {
+        // import <caregivers|patients|availability|vaccines> <file.csv> [chunk_size]
+        // check 1: bulk loads are an administrative task, so only caregivers may run them
+        if (session.getCaregiver() == null) {
+            session.out.println("Please login as a caregiver first!");
+            return;
+        }
+        CsvImport.Kind kind = CsvImport.Kind.of(line.token(1));
+        if (kind == null) {
+            session.out.println("Please try again!");
+            return;
+        }
+        int chunkSize = CsvImport.DEFAULT_CHUNK_SIZE;
+        if (line.size() == 4) {
             try {
-                PreparedStatement statement = con.prepareStatement(printPAppointments);
-                ResultSet resultSet = statement.executeQuery();
-                while (resultSet.next()) {
-                    String ID = resultSet.getString("ID");
-                    String vaccines = resultSet.getString("vaccines");
-                    String Time = resultSet.getString("Time");
-                    String Carename = resultSet.getString("Carename");
-                    System.out.println("Current Appointment: " + ID + ", " + vaccines + ", " + Time + "," + Carename);
-                }
-            } catch (SQLException e) {
-                System.out.println("Please try again!");
-                e.printStackTrace();
-            } finally {
-                cm.closeConnection();
+                chunkSize = line.intArg(3);
+            } catch (NumberFormatException e) {
+                chunkSize = 0;
+            }
+            if (chunkSize <= 0) {
+                session.out.println("Please enter a valid chunk size!");
+                return;
             }
         }
+        CsvImport csvImport = new CsvImport(kind, chunkSize, session.out);
+        try (BufferedReader in = Files.newBufferedReader(Paths.get(line.token(2)), StandardCharsets.UTF_8)) {
+            csvImport.run(in);
+        } catch (IOException e) {
+            session.out.println("Could not read " + line.token(2));
+        } catch (SQLException e) {
+            session.out.println("Error occurred when importing, stopped after " + csvImport.getImported() + " rows");
+            e.printStackTrace();
+            Metrics.failure();
+        }
     }
 
-    private static void logout(String[] tokens) {
-
-        if (currentCaregiver == null && currentPatient == null) {
-            System.out.println("Please login first!");
+    private static void logout(CommandLine line, Session session) {
+        // logout [--keep-token]
+        if (session.getRole() == Session.Role.NONE) {
+            session.out.println("Please login first!");
             return;
         }
-        if (currentCaregiver != null) {
-            currentCaregiver = null;
-            System.out.println("Successfully logged out!");
+        if (line.size() == 2 && !line.tokenEquals(1, "--keep-token")) {
+            session.out.println("Please try again!");
             return;
         }
-        if (currentPatient != null) {
-            currentPatient = null;
-            System.out.println("Successfully logged out!");
-            return;
+        // the token is printed on screen, so it dies with the login unless the user asks to keep
+        // it for logging in again
+        if (session.getToken() != null && line.size() == 1) {
+            if (session.getRole() == Session.Role.CAREGIVER) {
+                SessionTokens.caregivers().revoke(session.getToken());
+            } else {
+                SessionTokens.patients().revoke(session.getToken());
+            }
         }
+        session.logout();
+        session.out.println("Successfully logged out!");
     }
 }
@@ -0,0 +1,137 @@
+package scheduler;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Serves the scheduler's command grammar to many concurrent clients over a loopback TCP socket.
+// Every connection gets its own Session from the SessionManager, so clients log in and out
+// independently, and a client idle past the timeout is logged out and disconnected; everything
+// they share (connection pool, availability index, reservation engine) is thread-safe.
+public class SchedulerServer {
+
+    public static final int DEFAULT_PORT = 8765;
+    public static final int DEFAULT_MAX_SESSIONS = 10000;
+
+    private final int port;
+    private final Semaphore sessionPermits;
+    private final int idleTimeoutSeconds;
+    private final SessionManager sessions;
+
+    public SchedulerServer(int port, int maxSessions, int idleTimeoutSeconds) {
+        this.port = port;
+        this.sessionPermits = new Semaphore(maxSessions);
+        this.idleTimeoutSeconds = idleTimeoutSeconds;
+        this.sessions = new SessionManager(idleTimeoutSeconds);
+    }
+
+    public int getActiveSessions() {
+        return sessions.size();
+    }
+
+    public void run() throws IOException {
+        ExecutorService executor = newSessionExecutor();
+        try (ServerSocket server = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress())) {
+            System.out.println("Scheduler server listening on " + server.getLocalSocketAddress());
+            while (true) {
+                Socket client = server.accept();
+                if (!sessionPermits.tryAcquire()) {
+                    reject(client);
+                    continue;
+                }
+                executor.execute(() -> {
+                    try {
+                        serve(client);
+                    } finally {
+                        sessionPermits.release();
+                    }
+                });
+            }
+        } finally {
+            executor.shutdownNow();
+            sessions.shutdown();
+        }
+    }
+
+    private void serve(Socket client) {
+        try (Socket socket = client;
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintStream out = new PrintStream(
+                     new BufferedOutputStream(socket.getOutputStream()), false, StandardCharsets.UTF_8)) {
+            Session session = sessions.open(out);
+            session.onExpire(() -> {
+                out.println();
+                out.println("Logged out after " + idleTimeoutSeconds + " seconds idle. Bye!");
+                out.flush();
+                // unblocks the readLine in serveSession; the try above still owns the socket
+                disconnect(client);
+            });
+            try {
+                serveSession(session, in, out);
+            } finally {
+                sessions.close(session);
+            }
+        } catch (IOException e) {
+            // the client went away, or was disconnected for idling; its session simply ends
+        }
+    }
+
+    private static void serveSession(Session session, BufferedReader in, PrintStream out) throws IOException {
+        out.println("Welcome to the COVID-19 Vaccine Reservation Scheduling Application!");
+        Scheduler.printMenu(out);
+        while (true) {
+            out.print("> ");
+            out.flush();
+            String line = in.readLine();
+            if (line == null || !Scheduler.execute(line, session)) {
+                break;
+            }
+        }
+        out.flush();
+    }
+
+    private static void disconnect(Socket client) {
+        try {
+            client.close();
+        } catch (IOException e) {
+            // the client is gone already
+        }
+    }
+
+    private static void reject(Socket client) {
+        try (Socket socket = client;
+             PrintStream out = new PrintStream(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+            out.println("Server busy, please try again later.");
+        } catch (IOException e) {
+            // nothing to do
+        }
+    }
+
+    // one virtual thread per session where the runtime has them (Java 21+), otherwise a
+    // platform thread per session
+    private static ExecutorService newSessionExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "scheduler-session-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+}
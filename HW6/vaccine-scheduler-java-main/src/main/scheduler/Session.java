@@ -0,0 +1,130 @@
+package scheduler;
+
+import scheduler.model.Caregiver;
+import scheduler.model.Patient;
+
+import java.io.PrintStream;
+
+// Login state and output for one user of the scheduler: who is logged in and in which role. The
+// interactive and batch modes have exactly one; the server mode opens one per connected client
+// through its SessionManager, which also ends sessions that stay idle too long. Every command
+// handler gets the session it runs for, so nothing about a user is kept anywhere else.
+public class Session {
+
+    public enum Role {
+        NONE,
+        PATIENT,
+        CAREGIVER
+    }
+
+    // sessions not opened through a SessionManager
+    public static final long UNMANAGED = 0;
+
+    private final long id;
+    final PrintStream out;
+
+    // it is always true that at most one of caregiver and patient is not null
+    // since only one user can be logged-in per session at a time
+    private volatile Caregiver caregiver = null;
+    private volatile Patient patient = null;
+    // the login token issued to or presented by the logged-in user
+    private volatile String token = null;
+
+    private volatile long lastActiveNanos = System.nanoTime();
+    private volatile Runnable onExpire = null;
+
+    public Session(PrintStream out) {
+        this(UNMANAGED, out);
+    }
+
+    Session(long id, PrintStream out) {
+        this.id = id;
+        this.out = out;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Role getRole() {
+        if (caregiver != null) {
+            return Role.CAREGIVER;
+        }
+        return patient != null ? Role.PATIENT : Role.NONE;
+    }
+
+    // null if nobody is logged in
+    public String getUsername() {
+        Caregiver c = caregiver;
+        if (c != null) {
+            return c.getUsername();
+        }
+        Patient p = patient;
+        return p != null ? p.getUsername() : null;
+    }
+
+    public Caregiver getCaregiver() {
+        return caregiver;
+    }
+
+    public Patient getPatient() {
+        return patient;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    void loginAs(Caregiver caregiver) {
+        this.patient = null;
+        this.caregiver = caregiver;
+        this.token = null;
+    }
+
+    void loginAs(Patient patient) {
+        this.caregiver = null;
+        this.patient = patient;
+        this.token = null;
+    }
+
+    void setToken(String token) {
+        this.token = token;
+    }
+
+    void logout() {
+        caregiver = null;
+        patient = null;
+        token = null;
+    }
+
+    // records activity, which keeps the session from being evicted as idle
+    void touch() {
+        lastActiveNanos = System.nanoTime();
+    }
+
+    long idleNanos(long now) {
+        return now - lastActiveNanos;
+    }
+
+    // what to do, besides logging out, when the session is evicted (e.g. close its connection)
+    void onExpire(Runnable action) {
+        this.onExpire = action;
+    }
+
+    void expire() {
+        logout();
+        Runnable action = onExpire;
+        if (action != null) {
+            action.run();
+        }
+    }
+
+    // the same login, writing somewhere else; for read-only commands run concurrently
+    Session withOutput(PrintStream out) {
+        Session copy = new Session(id, out);
+        copy.caregiver = caregiver;
+        copy.patient = patient;
+        copy.token = token;
+        return copy;
+    }
+}
@@ -0,0 +1,71 @@
+package scheduler;
+
+import java.io.PrintStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// The live sessions of one server, by session id. Any number of them run commands at the same
+// time; a session that has not run a command for the idle timeout is logged out and expired
+// (which, for a network client, closes its connection).
+public class SessionManager {
+
+    private final ConcurrentHashMap<Long, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(Session.UNMANAGED);
+    private final long idleTimeoutNanos;
+    private final ScheduledExecutorService evictor;
+
+    public SessionManager(int idleTimeoutSeconds) {
+        this.idleTimeoutNanos = TimeUnit.SECONDS.toNanos(idleTimeoutSeconds);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "session-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        // checking a few times per timeout keeps sessions from outliving it by much
+        long period = Math.max(1, idleTimeoutSeconds / 4);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.SECONDS);
+    }
+
+    public Session open(PrintStream out) {
+        Session session = new Session(nextId.incrementAndGet(), out);
+        sessions.put(session.getId(), session);
+        return session;
+    }
+
+    public void close(Session session) {
+        sessions.remove(session.getId());
+    }
+
+    // null if there is no such session, or it has ended
+    public Session find(long id) {
+        return sessions.get(id);
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    // expires every session idle for longer than the timeout; returns how many
+    int evictIdle() {
+        long now = System.nanoTime();
+        int evicted = 0;
+        for (Session session : sessions.values()) {
+            if (session.idleNanos(now) > idleTimeoutNanos && sessions.remove(session.getId(), session)) {
+                try {
+                    session.expire();
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    public void shutdown() {
+        evictor.shutdownNow();
+    }
+}
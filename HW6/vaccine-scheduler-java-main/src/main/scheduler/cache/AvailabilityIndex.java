@@ -0,0 +1,186 @@
+package scheduler.cache;
+
+import scheduler.storage.Storage;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-process copy of the Availabilities table: epoch day -> set of caregivers with at least one
+// free slot that day (the slots themselves stay in the database; see DaySlots).
+// Caregivers are interned to small int ids so each day is a BitSet, and days live in an
+// open-addressing int-keyed table, so a lookup never boxes or touches the database.
+// The database stays authoritative (reservations claim slots there); the index only answers
+// schedule searches and is updated by this process alongside its own writes.
+public class AvailabilityIndex {
+
+    private static final int EMPTY_KEY = Integer.MIN_VALUE;
+    private static final AvailabilityIndex instance = new AvailabilityIndex();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // caregiver interning
+    private final Map<String, Integer> caregiverIds = new HashMap<>();
+    private String[] caregiverNames = new String[64];
+
+    // epoch day -> caregivers, linear probing
+    private int[] days = newKeyTable(64);
+    private BitSet[] caregivers = new BitSet[64];
+    private int dayCount = 0;
+
+    private volatile boolean loaded = false;
+
+    public static AvailabilityIndex getInstance() {
+        return instance;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    // (re)builds the index from the stored availabilities
+    public void load() throws SQLException {
+        lock.writeLock().lock();
+        try {
+            clear();
+            Storage.backend().availabilities().forEach((d, caregiver) -> addLocked(toEpochDay(d), caregiver));
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void add(Date d, String caregiver) {
+        lock.writeLock().lock();
+        try {
+            addLocked(toEpochDay(d), caregiver);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Date d, String caregiver) {
+        lock.writeLock().lock();
+        try {
+            Integer id = caregiverIds.get(caregiver);
+            BitSet set = id == null ? null : find(toEpochDay(d));
+            if (set != null) {
+                set.clear(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // caregivers available on the date, sorted by username
+    public List<String> caregiversOn(Date d) {
+        return caregiversOn(toEpochDay(d));
+    }
+
+    public List<String> caregiversOn(int epochDay) {
+        List<String> result;
+        lock.readLock().lock();
+        try {
+            BitSet set = find(epochDay);
+            if (set == null || set.isEmpty()) {
+                return Collections.emptyList();
+            }
+            result = new ArrayList<>(set.cardinality());
+            for (int id = set.nextSetBit(0); id >= 0; id = set.nextSetBit(id + 1)) {
+                result.add(caregiverNames[id]);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    public static int toEpochDay(Date d) {
+        return (int) d.toLocalDate().toEpochDay();
+    }
+
+    private void clear() {
+        caregiverIds.clear();
+        Arrays.fill(caregiverNames, null);
+        days = newKeyTable(64);
+        caregivers = new BitSet[64];
+        dayCount = 0;
+    }
+
+    private void addLocked(int epochDay, String caregiver) {
+        int slot = slotFor(epochDay);
+        if (days[slot] == EMPTY_KEY) {
+            days[slot] = epochDay;
+            caregivers[slot] = new BitSet();
+            dayCount++;
+            if (dayCount * 2 > days.length) {
+                grow();
+                slot = slotFor(epochDay);
+            }
+        }
+        caregivers[slot].set(idFor(caregiver));
+    }
+
+    private int idFor(String caregiver) {
+        Integer id = caregiverIds.get(caregiver);
+        if (id == null) {
+            id = caregiverIds.size();
+            if (id == caregiverNames.length) {
+                caregiverNames = Arrays.copyOf(caregiverNames, id * 2);
+            }
+            caregiverNames[id] = caregiver;
+            caregiverIds.put(caregiver, id);
+        }
+        return id;
+    }
+
+    private BitSet find(int epochDay) {
+        int slot = slotFor(epochDay);
+        return days[slot] == EMPTY_KEY ? null : caregivers[slot];
+    }
+
+    // the slot holding epochDay, or the empty slot where it would go
+    private int slotFor(int epochDay) {
+        int mask = days.length - 1;
+        int slot = mix(epochDay) & mask;
+        while (days[slot] != EMPTY_KEY && days[slot] != epochDay) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        int[] oldDays = days;
+        BitSet[] oldCaregivers = caregivers;
+        days = newKeyTable(oldDays.length * 2);
+        caregivers = new BitSet[oldDays.length * 2];
+        for (int i = 0; i < oldDays.length; i++) {
+            if (oldDays[i] != EMPTY_KEY) {
+                int slot = slotFor(oldDays[i]);
+                days[slot] = oldDays[i];
+                caregivers[slot] = oldCaregivers[i];
+            }
+        }
+    }
+
+    // consecutive days would otherwise fill consecutive slots and make probe runs long
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int[] newKeyTable(int capacity) {
+        int[] table = new int[capacity];
+        Arrays.fill(table, EMPTY_KEY);
+        return table;
+    }
+}
@@ -0,0 +1,103 @@
+package scheduler.cache;
+
+import scheduler.model.Caregiver;
+import scheduler.model.Patient;
+import scheduler.util.Util;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+// Opaque login tokens handed out on a successful password login. Presenting one logs the same
+// user in again without touching the store or recomputing PBKDF2. Tokens live only in this
+// process, expire SessionTokenTtlSeconds after they were issued and are revoked on logout
+// (unless it is logout --keep-token); at most SessionTokenCapacity are kept, the oldest going
+// first.
+public class SessionTokens<T> {
+
+    private static final int TOKEN_BYTES = 32;
+    private static final SecureRandom random = new SecureRandom();
+
+    private static final SessionTokens<Patient> patients = new SessionTokens<>(
+            Util.intSetting("SessionTokenTtlSeconds", 900), Util.intSetting("SessionTokenCapacity", 10000));
+    private static final SessionTokens<Caregiver> caregivers = new SessionTokens<>(
+            Util.intSetting("SessionTokenTtlSeconds", 900), Util.intSetting("SessionTokenCapacity", 10000));
+
+    private static class Entry<T> {
+        final T user;
+        final long expiresAt;
+
+        Entry(T user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final long ttlNanos;
+    private final int capacity;
+    // in issue order, and every token has the same lifetime, so the eldest entry expires first
+    private final LinkedHashMap<String, Entry<T>> tokens = new LinkedHashMap<>();
+
+    public SessionTokens(int ttlSeconds, int capacity) {
+        this.ttlNanos = ttlSeconds * 1_000_000_000L;
+        this.capacity = capacity;
+    }
+
+    public static SessionTokens<Patient> patients() {
+        return patients;
+    }
+
+    public static SessionTokens<Caregiver> caregivers() {
+        return caregivers;
+    }
+
+    public int getTtlSeconds() {
+        return (int) (ttlNanos / 1_000_000_000L);
+    }
+
+    public String issue(T user) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        long now = System.nanoTime();
+        synchronized (tokens) {
+            purgeExpired(now);
+            if (tokens.size() >= capacity) {
+                Iterator<String> eldest = tokens.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+            tokens.put(token, new Entry<>(user, now + ttlNanos));
+        }
+        return token;
+    }
+
+    // the user the token was issued to, or null if it is unknown, expired or revoked
+    public T find(String token) {
+        synchronized (tokens) {
+            Entry<T> entry = tokens.get(token);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAt - System.nanoTime() <= 0) {
+                tokens.remove(token);
+                return null;
+            }
+            return entry.user;
+        }
+    }
+
+    public void revoke(String token) {
+        synchronized (tokens) {
+            tokens.remove(token);
+        }
+    }
+
+    private void purgeExpired(long now) {
+        Iterator<Entry<T>> entries = tokens.values().iterator();
+        while (entries.hasNext() && entries.next().expiresAt - now <= 0) {
+            entries.remove();
+        }
+    }
+}
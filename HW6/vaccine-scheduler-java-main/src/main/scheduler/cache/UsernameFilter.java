@@ -0,0 +1,104 @@
+package scheduler.cache;
+
+import scheduler.storage.Storage;
+import scheduler.storage.UserRepository;
+import scheduler.util.Util;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Bloom filter over the usernames of one user table, so create_* can tell that a name is free
+// without a round trip. A miss is definite; a hit only means the store has to be asked. It is
+// seeded at startup and this process adds every user it inserts. Users inserted by another
+// process are not seen, which is harmless: the insert itself still fails on the primary key.
+// Until it is loaded every name is a possible hit. Names are hashed case-folded, because the
+// database's default collation compares usernames without regard to case: "alice" has to hit
+// when "Alice" exists.
+public class UsernameFilter {
+
+    // sized for UsernameFilterCapacity names at about a 1% false positive rate
+    private static final int HASHES = 7;
+    private static final int BITS_PER_NAME = 10;
+
+    private static final UsernameFilter patients = new UsernameFilter(Util.intSetting("UsernameFilterCapacity", 1_000_000));
+    private static final UsernameFilter caregivers = new UsernameFilter(Util.intSetting("UsernameFilterCapacity", 1_000_000));
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private volatile boolean loaded = false;
+
+    public UsernameFilter(int expectedNames) {
+        int wordCount = (int) Math.min(Integer.MAX_VALUE, ((long) expectedNames * BITS_PER_NAME + 63) / 64);
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = wordCount * 64L;
+    }
+
+    public static UsernameFilter patients() {
+        return patients;
+    }
+
+    public static UsernameFilter caregivers() {
+        return caregivers;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public static void loadAll() throws SQLException {
+        patients.load(Storage.backend().patients());
+        caregivers.load(Storage.backend().caregivers());
+    }
+
+    // seeds the filter by streaming every username in the table
+    public void load(UserRepository users) throws SQLException {
+        users.forEachUsername(this::add);
+        loaded = true;
+    }
+
+    public void add(String username) {
+        long h1 = hash(username, 0);
+        long h2 = hash(username, 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = words.get(word);
+            while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                current = words.get(word);
+            }
+        }
+    }
+
+    // false only if the username is certainly not in the table
+    public boolean mightContain(String username) {
+        if (!loaded) {
+            return true;
+        }
+        long h1 = hash(username, 0);
+        long h2 = hash(username, 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // FNV-1a over the case-folded chars (folded the way String.equalsIgnoreCase compares them),
+    // finished with the murmur3 64-bit mixer
+    private static long hash(String s, long seed) {
+        long h = 0xCBF29CE484222325L ^ seed;
+        for (int i = 0; i < s.length(); i++) {
+            char c = Character.toLowerCase(Character.toUpperCase(s.charAt(i)));
+            h = (h ^ c) * 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,141 @@
+package scheduler.cache;
+
+import scheduler.metrics.Metrics;
+import scheduler.storage.Storage;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// In-process copy of the Vaccines table: name -> dose count, one atomic counter per vaccine so
+// concurrent sessions update it without a lock. Reads go through it (a name it has not seen is
+// read from the store and kept); every dose change this process makes is written to the store
+// first and then applied here. The store stays authoritative for reservations, which claim their
+// dose there. Changes made by other processes, and the rare race between a reconciliation and a
+// concurrent write, are repaired by reconciling against the store every VaccineReconcileSeconds;
+// how far the cache had drifted is reported in the metrics. Names are compared without regard to
+// case, as the database's default collation compares the Vaccines primary key: a reservation for
+// "pfizer" takes a dose of "Pfizer".
+public class VaccineCache {
+
+    private static final VaccineCache instance = new VaccineCache();
+
+    private final ConcurrentSkipListMap<String, AtomicInteger> doses =
+            new ConcurrentSkipListMap<>(String.CASE_INSENSITIVE_ORDER);
+    private volatile boolean loaded = false;
+    private ScheduledExecutorService reconciler = null;
+
+    public static VaccineCache getInstance() {
+        return instance;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    // (re)fills the cache from the store
+    public void load() throws SQLException {
+        reconcile();
+    }
+
+    // null if there is no such vaccine
+    public Integer findDoses(String name) throws SQLException {
+        AtomicInteger count = doses.get(name);
+        if (count != null) {
+            return count.get();
+        }
+        Integer stored = Storage.backend().vaccines().findDoses(name);
+        if (stored != null) {
+            doses.putIfAbsent(name, new AtomicInteger(stored));
+        }
+        return stored;
+    }
+
+    // every vaccine and its dose count, ordered by name
+    public Map<String, Integer> listAll() throws SQLException {
+        if (!loaded) {
+            return Storage.backend().vaccines().listAll();
+        }
+        Map<String, Integer> all = new LinkedHashMap<>();
+        for (Map.Entry<String, AtomicInteger> entry : doses.entrySet()) {
+            all.put(entry.getKey(), entry.getValue().get());
+        }
+        return all;
+    }
+
+    // records a count the store just returned from a write
+    public void set(String name, int count) {
+        AtomicInteger current = doses.putIfAbsent(name, new AtomicInteger(count));
+        if (current != null) {
+            current.set(count);
+        }
+    }
+
+    // applies a change the store has already made but did not return the count for
+    // (a reservation takes one dose, a cancellation gives one back)
+    public void add(String name, int delta) {
+        AtomicInteger current = doses.get(name);
+        if (current != null) {
+            current.addAndGet(delta);
+        }
+    }
+
+    // replaces every count with the store's and reports the total difference found;
+    // the first successful one is the initial load
+    public void reconcile() throws SQLException {
+        Map<String, Integer> stored = Storage.backend().vaccines().listAll();
+        Set<String> names = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        names.addAll(stored.keySet());
+        long drift = 0;
+        for (Map.Entry<String, Integer> entry : stored.entrySet()) {
+            String name = entry.getKey();
+            AtomicInteger current = doses.putIfAbsent(name, new AtomicInteger(entry.getValue()));
+            if (current != null) {
+                drift += Math.abs(current.getAndSet(entry.getValue()) - entry.getValue());
+                // a name first seen as a user typed it is listed as the store spells it
+                String cached = doses.ceilingKey(name);
+                if (!name.equals(cached) && doses.remove(cached, current)) {
+                    doses.putIfAbsent(name, current);
+                }
+            } else if (loaded) {
+                drift += entry.getValue();
+            }
+        }
+        for (Map.Entry<String, AtomicInteger> entry : doses.entrySet()) {
+            if (!names.contains(entry.getKey())) {
+                drift += Math.abs(entry.getValue().get());
+                doses.remove(entry.getKey());
+            }
+        }
+        if (loaded) {
+            Metrics.vaccineCacheReconciled(drift);
+        }
+        loaded = true;
+    }
+
+    public synchronized void startReconciling(int intervalSeconds) {
+        if (reconciler != null) {
+            return;
+        }
+        reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "vaccine-cache-reconcile");
+            t.setDaemon(true);
+            return t;
+        });
+        reconciler.scheduleWithFixedDelay(() -> {
+            try {
+                reconcile();
+            } catch (SQLException | RuntimeException e) {
+                // keep reconciling; the next round may reach the store
+                e.printStackTrace();
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+}
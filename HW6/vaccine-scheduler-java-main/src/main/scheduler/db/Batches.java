@@ -0,0 +1,34 @@
+package scheduler.db;
+
+import java.sql.BatchUpdateException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// JDBC batch helpers shared by the repositories
+final class Batches {
+
+    private Batches() {
+    }
+
+    // runs the statement's batch and reports which rows went in. A row that breaks a key
+    // does not stop the rest of the batch; the driver reports it as failed instead.
+    static boolean[] execute(PreparedStatement statement, int size) throws SQLException {
+        int[] counts;
+        try {
+            counts = statement.executeBatch();
+        } catch (BatchUpdateException e) {
+            counts = e.getUpdateCounts();
+            if (counts == null) {
+                throw e;
+            }
+        } finally {
+            statement.clearBatch();
+        }
+        boolean[] inserted = new boolean[size];
+        for (int i = 0; i < size && i < counts.length; i++) {
+            inserted[i] = counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO;
+        }
+        return inserted;
+    }
+}
@@ -1,41 +1,118 @@
 package scheduler.db;
 
+import scheduler.metrics.ConnectionAcquireEvent;
+import scheduler.metrics.Metrics;
+import scheduler.util.Util;
+
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.function.ToLongFunction;
 
 public class ConnectionManager {
 
-    private final String driverName = "com.microsoft.sqlserver.jdbc.SQLServerDriver";
-    private final String connectionUrl = "jdbc:sqlserver://" + System.getenv("Server") +
+    private static final String driverName = "com.microsoft.sqlserver.jdbc.SQLServerDriver";
+    private static final String connectionUrl = "jdbc:sqlserver://" + System.getenv("Server") +
             ".database.windows.net:1433;database=" + System.getenv("DBName");
-    private final String userName = System.getenv("UserID");
-    private final String userPass = System.getenv("Password");
+    private static final String userName = System.getenv("UserID");
+    private static final String userPass = System.getenv("Password");
+
+    // pool settings, all optional
+    private static final int poolMinSize = Util.intSetting("PoolMinSize", 1, 0);
+    private static final int poolMaxSize = Util.intSetting("PoolMaxSize", 10);
+    private static final int poolIdleTimeoutMillis = Util.intSetting("PoolIdleTimeoutMillis", 300000);
+    private static final int poolBorrowTimeoutMillis = Util.intSetting("PoolBorrowTimeoutMillis", 30000);
+    private static final int poolValidationTimeoutSeconds = Util.intSetting("PoolValidationTimeoutSeconds", 5);
+
+    private static ConnectionPool pool = null;
 
+    private PooledConnection pooled = null;
     private Connection con = null;
 
     public ConnectionManager() {
-        try {
-            Class.forName(driverName);
-        } catch (ClassNotFoundException e) {
-            System.out.println(e.toString());
+    }
+
+    public static synchronized ConnectionPool getPool() {
+        if (pool == null) {
+            try {
+                Class.forName(driverName);
+            } catch (ClassNotFoundException e) {
+                System.out.println(e.toString());
+            }
+            pool = new ConnectionPool(connectionUrl, userName, userPass, poolMinSize, poolMaxSize,
+                    poolIdleTimeoutMillis, poolBorrowTimeoutMillis, poolValidationTimeoutSeconds);
+            registerMetrics();
+        }
+        return pool;
+    }
+
+    // the pool gauges and statement cache counters, shown by the stats command and written to the
+    // metrics file; they read whichever pool is current, and 0 once it is shut down
+    private static void registerMetrics() {
+        Metrics.registerGauge("scheduler_pool_connections_active", () -> read(ConnectionPool::getActiveCount));
+        Metrics.registerGauge("scheduler_pool_connections_idle", () -> read(ConnectionPool::getIdleCount));
+        Metrics.registerGauge("scheduler_pool_connections_max", () -> read(ConnectionPool::getMaxSize));
+        Metrics.registerGauge("scheduler_pool_waiters", () -> read(ConnectionPool::getWaiterCount));
+        Metrics.registerCounter("scheduler_pool_statement_cache_hits_total",
+                () -> read(p -> p.getStatementCacheStats().getHits()));
+        Metrics.registerCounter("scheduler_pool_statement_cache_misses_total",
+                () -> read(p -> p.getStatementCacheStats().getMisses()));
+        Metrics.registerCounter("scheduler_pool_statement_cache_evictions_total",
+                () -> read(p -> p.getStatementCacheStats().getEvictions()));
+    }
+
+    private static synchronized long read(ToLongFunction<ConnectionPool> reading) {
+        return pool == null ? 0 : reading.applyAsLong(pool);
+    }
+
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
         }
     }
 
+    // borrows a connection from the shared pool; it goes back to the pool on closeConnection()
     public Connection createConnection() {
+        if (con != null) {
+            return con;
+        }
         try {
-            con = DriverManager.getConnection(connectionUrl, userName, userPass);
+            ConnectionAcquireEvent event = new ConnectionAcquireEvent();
+            event.begin();
+            long start = System.nanoTime();
+            try {
+                pooled = getPool().borrow();
+                event.acquired = true;
+            } finally {
+                Metrics.connectionWait(System.nanoTime() - start);
+                event.commit();
+            }
+            con = pooled.getConnection();
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return con;
     }
 
+    // returns this connection's cached handle for the statement, borrowing a connection first if needed.
+    // The handle is owned by the pooled connection: close its ResultSets, never the statement itself.
+    public PreparedStatement prepare(SqlStatement statement) throws SQLException {
+        if (createConnection() == null) {
+            throw new SQLException("No database connection available");
+        }
+        // every prepared statement handed out is executed once, so this counts round trips
+        Metrics.roundTrip();
+        return StatementTracer.trace(statement, pooled.prepare(statement, getPool().getStatementCacheStats()));
+    }
+
     public void closeConnection() {
-        try {
-            this.con.close();
-        } catch (SQLException e) {
-            e.printStackTrace();
+        if (pooled == null) {
+            return;
         }
+        PooledConnection toRelease = pooled;
+        pooled = null;
+        con = null;
+        getPool().release(toRelease);
     }
 }
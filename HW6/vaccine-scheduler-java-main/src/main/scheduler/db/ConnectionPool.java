@@ -0,0 +1,301 @@
+package scheduler.db;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// A bounded pool of physical connections. Idle connections are kept most-recently-used first,
+// so the ones at the tail are the ones that age out during eviction.
+public class ConnectionPool {
+
+    // connections that were handed back this recently are not re-validated on borrow
+    private static final long VALIDATION_SKIP_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final String url;
+    private final String userName;
+    private final String userPass;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutNanos;
+    private final long borrowTimeoutNanos;
+    private final int validationTimeoutSeconds;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final ScheduledExecutorService evictor;
+    private final StatementCacheStats statementCacheStats = new StatementCacheStats();
+
+    // guarded by lock
+    private int total = 0;
+    private int active = 0;
+    private int waiters = 0;
+    private boolean closed = false;
+
+    public ConnectionPool(String url, String userName, String userPass, int minSize, int maxSize,
+                          long idleTimeoutMillis, long borrowTimeoutMillis, int validationTimeoutSeconds) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.userName = userName;
+        this.userPass = userPass;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.borrowTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMillis);
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, idleTimeoutMillis / 2);
+        evictor.scheduleWithFixedDelay(this::maintain, 0, period, TimeUnit.MILLISECONDS);
+    }
+
+    PooledConnection borrow() throws SQLException {
+        long remaining = borrowTimeoutNanos;
+        while (true) {
+            PooledConnection candidate = null;
+            boolean create = false;
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) {
+                        throw new SQLException("Connection pool is closed");
+                    }
+                    if (!idle.isEmpty()) {
+                        candidate = idle.pollFirst();
+                        break;
+                    }
+                    if (total < maxSize) {
+                        total++;
+                        create = true;
+                        break;
+                    }
+                    if (remaining <= 0) {
+                        throw new SQLException("Timed out waiting for a database connection (active="
+                                + active + ", max=" + maxSize + ")");
+                    }
+                    waiters++;
+                    try {
+                        remaining = available.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a database connection");
+                    } finally {
+                        waiters--;
+                    }
+                }
+                active++;
+            } finally {
+                lock.unlock();
+            }
+
+            if (create) {
+                try {
+                    return new PooledConnection(open());
+                } catch (SQLException e) {
+                    discard(null);
+                    throw e;
+                }
+            }
+            if (isUsable(candidate)) {
+                return candidate;
+            }
+            // stale connection: drop it and try again with whatever time is left
+            discard(candidate);
+        }
+    }
+
+    void release(PooledConnection pc) {
+        try {
+            pc.reset();
+        } catch (SQLException e) {
+            discard(pc);
+            return;
+        }
+        pc.touch();
+        lock.lock();
+        try {
+            active--;
+            if (closed) {
+                total--;
+                pc.closeQuietly(statementCacheStats);
+                return;
+            }
+            idle.addFirst(pc);
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // removes a borrowed (or never successfully opened) connection from the pool's accounting
+    private void discard(PooledConnection pc) {
+        if (pc != null) {
+            pc.closeQuietly(statementCacheStats);
+        }
+        lock.lock();
+        try {
+            active--;
+            total--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isUsable(PooledConnection pc) {
+        if (System.nanoTime() - pc.getLastUsedNanos() < VALIDATION_SKIP_NANOS) {
+            return true;
+        }
+        try {
+            return pc.getConnection().isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection open() throws SQLException {
+        return DriverManager.getConnection(url, userName, userPass);
+    }
+
+    // evicts connections idle for longer than the idle timeout and tops the pool back up to minSize
+    private void maintain() {
+        List<PooledConnection> expired = new ArrayList<>();
+        int toCreate;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            long now = System.nanoTime();
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext() && total > minSize) {
+                PooledConnection pc = it.next();
+                if (now - pc.getLastUsedNanos() < idleTimeoutNanos) {
+                    break;
+                }
+                it.remove();
+                total--;
+                expired.add(pc);
+            }
+            toCreate = Math.max(0, minSize - total);
+            total += toCreate;
+        } finally {
+            lock.unlock();
+        }
+
+        for (PooledConnection pc : expired) {
+            pc.closeQuietly(statementCacheStats);
+        }
+        for (int i = 0; i < toCreate; i++) {
+            PooledConnection pc;
+            try {
+                pc = new PooledConnection(open());
+            } catch (SQLException e) {
+                lock.lock();
+                try {
+                    total -= toCreate - i;
+                } finally {
+                    lock.unlock();
+                }
+                System.out.println("Could not pre-open database connections: " + e.getMessage());
+                return;
+            }
+            lock.lock();
+            try {
+                idle.addLast(pc);
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public void close() {
+        List<PooledConnection> toClose;
+        lock.lock();
+        try {
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            total -= idle.size();
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        evictor.shutdownNow();
+        for (PooledConnection pc : toClose) {
+            pc.closeQuietly(statementCacheStats);
+        }
+    }
+
+    // Metrics
+    public int getActiveCount() {
+        lock.lock();
+        try {
+            return active;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getIdleCount() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getWaiterCount() {
+        lock.lock();
+        try {
+            return waiters;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getTotalCount() {
+        lock.lock();
+        try {
+            return total;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public StatementCacheStats getStatementCacheStats() {
+        return statementCacheStats;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPool{" +
+                "active=" + getActiveCount() +
+                ", idle=" + getIdleCount() +
+                ", waiters=" + getWaiterCount() +
+                ", max=" + maxSize +
+                '}';
+    }
+}
@@ -0,0 +1,80 @@
+package scheduler.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.EnumMap;
+import java.util.Map;
+
+// A physical connection owned by the ConnectionPool, plus the bookkeeping the pool needs
+class PooledConnection {
+    private final Connection connection;
+    private final Map<SqlStatement, PreparedStatement> statements = new EnumMap<>(SqlStatement.class);
+    private long lastUsedNanos;
+    // a statement that changes SET options ran since the last reset
+    private boolean sessionOptionsChanged;
+
+    PooledConnection(Connection connection) {
+        this.connection = connection;
+        this.lastUsedNanos = System.nanoTime();
+    }
+
+    Connection getConnection() {
+        return connection;
+    }
+
+    long getLastUsedNanos() {
+        return lastUsedNanos;
+    }
+
+    void touch() {
+        this.lastUsedNanos = System.nanoTime();
+    }
+
+    // returns the cached handle for this connection, preparing it on first use.
+    // A connection is only ever used by one borrower at a time, so no locking is needed here.
+    PreparedStatement prepare(SqlStatement statement, StatementCacheStats stats) throws SQLException {
+        if (statement.setsSessionOptions()) {
+            sessionOptionsChanged = true;
+        }
+        PreparedStatement cached = statements.get(statement);
+        if (cached != null && !cached.isClosed()) {
+            stats.hit();
+            return cached;
+        }
+        stats.miss();
+        if (cached != null) {
+            stats.evicted(1);
+        }
+        PreparedStatement prepared = connection.prepareStatement(statement.getSql());
+        statements.put(statement, prepared);
+        return prepared;
+    }
+
+    // undo anything a borrower may have left behind so the next borrower starts clean
+    void reset() throws SQLException {
+        if (!connection.getAutoCommit()) {
+            connection.rollback();
+            connection.setAutoCommit(true);
+        }
+        // NOCOUNT would hide update counts (Batches relies on them) and XACT_ABORT would change
+        // how errors end transactions
+        if (sessionOptionsChanged) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET NOCOUNT OFF; SET XACT_ABORT OFF;");
+            }
+            sessionOptionsChanged = false;
+        }
+    }
+
+    void closeQuietly(StatementCacheStats stats) {
+        stats.evicted(statements.size());
+        statements.clear();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
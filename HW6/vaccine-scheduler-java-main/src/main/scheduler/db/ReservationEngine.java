@@ -0,0 +1,61 @@
+package scheduler.db;
+
+import scheduler.storage.Reservation;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// Books appointments atomically: the caregiver's slot, the dose and the appointment row are
+// claimed together in one transaction (see SqlStatement.RESERVE), so concurrent sessions can
+// neither double-book a caregiver nor oversell a vaccine.
+public class ReservationEngine {
+
+    // SQL Server error code for "chosen as deadlock victim"
+    private static final int DEADLOCK_ERROR = 1205;
+    private static final int MAX_ATTEMPTS = 3;
+
+    // id is the appointment ID to book under; a deadlocked attempt is retried with the same ID
+    public Reservation reserve(long id, Date time, String vaccineName, String patientName) throws SQLException {
+        SQLException lastFailure = null;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                return tryReserve(id, time, vaccineName, patientName);
+            } catch (SQLException e) {
+                if (e.getErrorCode() != DEADLOCK_ERROR) {
+                    throw e;
+                }
+                lastFailure = e;
+            }
+        }
+        throw lastFailure;
+    }
+
+    private Reservation tryReserve(long id, Date time, String vaccineName, String patientName) throws SQLException {
+        ConnectionManager cm = new ConnectionManager();
+        try {
+            PreparedStatement statement = cm.prepare(SqlStatement.RESERVE);
+            statement.setDate(1, time);
+            statement.setString(2, vaccineName);
+            statement.setString(3, patientName);
+            statement.setLong(4, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    throw new SQLException("Reservation returned no result");
+                }
+                switch (resultSet.getInt("Outcome")) {
+                    case 0:
+                        return Reservation.reserved(resultSet.getLong("ID"), resultSet.getString("Carename"),
+                                resultSet.getInt("Slot"), resultSet.getInt("DayFull") != 0);
+                    case 1:
+                        return Reservation.failed(Reservation.Outcome.NO_CAREGIVER);
+                    default:
+                        return Reservation.failed(Reservation.Outcome.NO_DOSES);
+                }
+            }
+        } finally {
+            cm.closeConnection();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package scheduler.db;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+// Brings the database schema up to date from the versioned scripts in resources/migrations.
+// Applied versions are recorded in SchemaVersion; each script runs in its own transaction and
+// an application lock keeps two schedulers starting at once from applying the same script.
+public class SchemaMigrator {
+
+    // in order; a script's version is the number after the V. create.sql records each of them as
+    // applied, so a new one goes there too
+    private static final String[] MIGRATIONS = {
+            "V1__initial_schema.sql",
+            "V2__appointment_id_blocks.sql",
+            "V3__covering_indexes.sql",
+            "V4__appointment_keyset_indexes.sql",
+            "V5__availability_slots.sql",
+            "V6__appointment_id_ranges.sql",
+    };
+
+    public static final int LATEST_VERSION = version(MIGRATIONS[MIGRATIONS.length - 1]);
+
+    private static final String LOCK_NAME = "scheduler-schema-migration";
+
+    // thrown when the database is older than this build and may not be upgraded
+    public static class SchemaBehindException extends SQLException {
+        private static final long serialVersionUID = 1L;
+
+        SchemaBehindException(int current) {
+            super("Database schema is at version " + current + " but this build needs version "
+                    + LATEST_VERSION + "; run the scheduler with MigrateOnStartup=true to upgrade it");
+        }
+    }
+
+    // applies every pending script
+    public void migrate() throws SQLException {
+        ConnectionManager cm = new ConnectionManager();
+        Connection con = cm.createConnection();
+        if (con == null) {
+            throw new SQLException("No database connection available");
+        }
+
+        try {
+            ensureVersionTable(con);
+            lock(con);
+            try {
+                int current = currentVersion(con);
+                for (String migration : MIGRATIONS) {
+                    int version = version(migration);
+                    if (version > current) {
+                        apply(con, version, migration);
+                        System.out.println("Applied schema migration " + migration);
+                    }
+                }
+            } finally {
+                unlock(con);
+            }
+        } finally {
+            cm.closeConnection();
+        }
+    }
+
+    // fails fast if the database has not been brought up to this build's schema
+    public void verify() throws SQLException {
+        ConnectionManager cm = new ConnectionManager();
+        Connection con = cm.createConnection();
+        if (con == null) {
+            throw new SQLException("No database connection available");
+        }
+
+        try {
+            int current = versionTableExists(con) ? currentVersion(con) : 0;
+            if (current < LATEST_VERSION) {
+                throw new SchemaBehindException(current);
+            }
+        } finally {
+            cm.closeConnection();
+        }
+    }
+
+    private static void apply(Connection con, int version, String migration) throws SQLException {
+        List<String> batches = load(migration);
+        con.setAutoCommit(false);
+        try {
+            try (Statement statement = con.createStatement()) {
+                for (String batch : batches) {
+                    statement.execute(batch);
+                }
+            }
+            try (PreparedStatement record = con.prepareStatement(
+                    "INSERT INTO SchemaVersion (Version, Script) VALUES (?, ?)")) {
+                record.setInt(1, version);
+                record.setString(2, migration);
+                record.executeUpdate();
+            }
+            con.commit();
+        } catch (SQLException e) {
+            con.rollback();
+            throw new SQLException("Schema migration " + migration + " failed: " + e.getMessage(), e);
+        } finally {
+            con.setAutoCommit(true);
+        }
+    }
+
+    private static boolean versionTableExists(Connection con) throws SQLException {
+        try (Statement statement = con.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT OBJECT_ID('SchemaVersion', 'U')")) {
+            return resultSet.next() && resultSet.getObject(1) != null;
+        }
+    }
+
+    private static void ensureVersionTable(Connection con) throws SQLException {
+        try (Statement statement = con.createStatement()) {
+            statement.execute("IF OBJECT_ID('SchemaVersion', 'U') IS NULL " +
+                    "CREATE TABLE SchemaVersion (Version int PRIMARY KEY, Script varchar(255) NOT NULL, " +
+                    "AppliedAt datetime2 NOT NULL DEFAULT SYSUTCDATETIME())");
+        }
+    }
+
+    private static int currentVersion(Connection con) throws SQLException {
+        try (Statement statement = con.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT ISNULL(MAX(Version), 0) FROM SchemaVersion")) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    private static void lock(Connection con) throws SQLException {
+        try (PreparedStatement statement = con.prepareStatement(
+                "DECLARE @result int; " +
+                "EXEC @result = sp_getapplock @Resource = ?, @LockMode = 'Exclusive', " +
+                "    @LockOwner = 'Session', @LockTimeout = 60000; " +
+                "SELECT @result")) {
+            statement.setString(1, LOCK_NAME);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next() || resultSet.getInt(1) < 0) {
+                    throw new SQLException("Timed out waiting for another scheduler to finish migrating");
+                }
+            }
+        }
+    }
+
+    private static void unlock(Connection con) throws SQLException {
+        try (PreparedStatement statement = con.prepareStatement(
+                "EXEC sp_releaseapplock @Resource = ?, @LockOwner = 'Session'")) {
+            statement.setString(1, LOCK_NAME);
+            statement.execute();
+        }
+    }
+
+    // reads a script and splits it into batches on GO lines
+    private static List<String> load(String migration) throws SQLException {
+        InputStream in = SchemaMigrator.class.getResourceAsStream("/migrations/" + migration);
+        if (in == null) {
+            throw new SQLException("Missing schema migration " + migration);
+        }
+        List<String> batches = new ArrayList<>();
+        StringBuilder batch = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().equalsIgnoreCase("GO")) {
+                    addBatch(batches, batch);
+                } else {
+                    batch.append(line).append('\n');
+                }
+            }
+        } catch (IOException e) {
+            throw new SQLException("Could not read schema migration " + migration, e);
+        }
+        addBatch(batches, batch);
+        return batches;
+    }
+
+    private static void addBatch(List<String> batches, StringBuilder batch) {
+        if (!batch.toString().trim().isEmpty()) {
+            batches.add(batch.toString());
+        }
+        batch.setLength(0);
+    }
+
+    private static int version(String migration) {
+        return Integer.parseInt(migration.substring(1, migration.indexOf("__")));
+    }
+}
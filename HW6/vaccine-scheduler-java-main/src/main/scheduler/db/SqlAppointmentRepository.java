@@ -0,0 +1,131 @@
+package scheduler.db;
+
+import scheduler.model.Appointment;
+import scheduler.storage.AppointmentPage;
+import scheduler.storage.AppointmentRepository;
+import scheduler.storage.DaySlots;
+import scheduler.storage.IdAllocator;
+import scheduler.storage.Reservation;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Consumer;
+
+class SqlAppointmentRepository implements AppointmentRepository {
+
+    private static final int FETCH_SIZE = 128;
+    // the range of the SQL Server date type
+    private static final Date EARLIEST = Date.valueOf("0001-01-01");
+    private static final Date LATEST = Date.valueOf("9999-12-31");
+
+    private final ReservationEngine reservationEngine = new ReservationEngine();
+    private final IdAllocator ids = new IdAllocator(this::leaseIdBlock, IdAllocator.DEFAULT_BLOCK_SIZE);
+
+    @Override
+    public Reservation reserve(Date time, String vaccine, String patient) throws SQLException {
+        return reservationEngine.reserve(ids.next(), time, vaccine, patient);
+    }
+
+    // the database sequence is shared by every scheduler process and hands out the whole
+    // range at once, so blocks never overlap whatever size each process leases
+    private long leaseIdBlock(int size) throws SQLException {
+        ConnectionManager cm = new ConnectionManager();
+
+        try {
+            PreparedStatement statement = cm.prepare(SqlStatement.NEXT_APPOINTMENT_ID_BLOCK);
+            statement.setLong(1, size);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    throw new SQLException("No appointment ID block returned");
+                }
+                return resultSet.getLong("Block");
+            }
+        } finally {
+            cm.closeConnection();
+        }
+    }
+
+    @Override
+    public Appointment find(long id) throws SQLException {
+        ConnectionManager cm = new ConnectionManager();
+
+        try {
+            PreparedStatement statement = cm.prepare(SqlStatement.GET_APPOINTMENT);
+            statement.setLong(1, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? toAppointment(resultSet) : null;
+            }
+        } finally {
+            cm.closeConnection();
+        }
+    }
+
+    @Override
+    public boolean cancel(long id) throws SQLException {
+        ConnectionManager cm = new ConnectionManager();
+
+        try {
+            PreparedStatement statement = cm.prepare(SqlStatement.CANCEL_APPOINTMENT);
+            statement.setLong(1, id);
+            statement.setLong(2, DaySlots.DEFAULT_HOURS.getAm());
+            statement.setLong(3, DaySlots.DEFAULT_HOURS.getPm());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getInt("Cancelled") > 0;
+            }
+        } finally {
+            cm.closeConnection();
+        }
+    }
+
+    @Override
+    public int forEachForCaregiver(String caregiver, AppointmentPage page, Consumer<Appointment> visitor)
+            throws SQLException {
+        return forEach(SqlStatement.LIST_CAREGIVER_APPOINTMENTS, caregiver, page, visitor);
+    }
+
+    @Override
+    public int forEachForPatient(String patient, AppointmentPage page, Consumer<Appointment> visitor)
+            throws SQLException {
+        return forEach(SqlStatement.LIST_PATIENT_APPOINTMENTS, patient, page, visitor);
+    }
+
+    // rows are handed to the visitor as they arrive, FETCH_SIZE at a time, so memory stays flat
+    // however long the user's history is
+    private int forEach(SqlStatement query, String username, AppointmentPage page, Consumer<Appointment> visitor)
+            throws SQLException {
+        ConnectionManager cm = new ConnectionManager();
+
+        try {
+            PreparedStatement statement = cm.prepare(query);
+            statement.setString(1, username);
+            statement.setLong(2, page.getAfterId());
+            statement.setDate(3, page.getFrom() != null ? page.getFrom() : EARLIEST);
+            statement.setDate(4, page.getTo() != null ? page.getTo() : LATEST);
+            statement.setInt(5, page.getLimit());
+            statement.setFetchSize(FETCH_SIZE);
+            int count = 0;
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    visitor.accept(toAppointment(resultSet));
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            cm.closeConnection();
+        }
+    }
+
+    private static Appointment toAppointment(ResultSet resultSet) throws SQLException {
+        int slot = resultSet.getInt("Slot");
+        if (resultSet.wasNull()) {
+            slot = Appointment.NO_SLOT;
+        }
+        return new Appointment(resultSet.getLong("ID"), resultSet.getDate("Time"),
+                resultSet.getString("Patname"), resultSet.getString("Carename"), resultSet.getString("vaccines"),
+                slot);
+    }
+}
@@ -0,0 +1,109 @@
+package scheduler.db;
+
+import scheduler.storage.AvailabilityRepository;
+import scheduler.storage.DaySlots;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+class SqlAvailabilityRepository implements AvailabilityRepository {
+
+    @Override
+    public Map<Date, DaySlots> addSlots(String caregiver, List<Date> days, DaySlots slots) throws SQLException {
+        ConnectionManager cm = new ConnectionManager();
+
+        try {
+            PreparedStatement statement = cm.prepare(SqlStatement.ADD_AVAILABILITY_SLOTS);
+            statement.setString(1, caregiver);
+            statement.setLong(2, slots.getAm());
+            statement.setLong(3, slots.getPm());
+            statement.setString(4, toJson(days));
+            Map<Date, DaySlots> free = new LinkedHashMap<>();
+            for (Date day : days) {
+                free.put(day, DaySlots.NONE);
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    free.put(resultSet.getDate("Time"),
+                            DaySlots.of(resultSet.getLong("SlotsAM"), resultSet.getLong("SlotsPM")));
+                }
+            }
+            return free;
+        } finally {
+            cm.closeConnection();
+        }
+    }
+
+    @Override
+    public boolean[] insertAll(List<Date> times, List<String> caregivers) throws SQLException {
+        ConnectionManager cm = new ConnectionManager();
+
+        try {
+            PreparedStatement statement = cm.prepare(SqlStatement.INSERT_AVAILABILITY);
+            for (int i = 0; i < times.size(); i++) {
+                statement.setDate(1, times.get(i));
+                statement.setString(2, caregivers.get(i));
+                statement.setLong(3, DaySlots.DEFAULT_HOURS.getAm());
+                statement.setLong(4, DaySlots.DEFAULT_HOURS.getPm());
+                statement.addBatch();
+            }
+            return Batches.execute(statement, times.size());
+        } finally {
+            cm.closeConnection();
+        }
+    }
+
+    @Override
+    public List<String> caregiversOn(Date time) throws SQLException {
+        ConnectionManager cm = new ConnectionManager();
+
+        try {
+            PreparedStatement statement = cm.prepare(SqlStatement.LIST_CAREGIVERS_ON);
+            statement.setDate(1, time);
+            List<String> caregivers = new ArrayList<>();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    caregivers.add(resultSet.getString("Username"));
+                }
+            }
+            return caregivers;
+        } finally {
+            cm.closeConnection();
+        }
+    }
+
+    @Override
+    public void forEach(BiConsumer<Date, String> visitor) throws SQLException {
+        ConnectionManager cm = new ConnectionManager();
+
+        try {
+            PreparedStatement statement = cm.prepare(SqlStatement.LOAD_AVAILABILITIES);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    visitor.accept(resultSet.getDate("Time"), resultSet.getString("Username"));
+                }
+            }
+        } finally {
+            cm.closeConnection();
+        }
+    }
+
+    // ["yyyy-mm-dd",...] for OPENJSON
+    private static String toJson(List<Date> days) {
+        StringBuilder json = new StringBuilder("[");
+        for (Date day : days) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append('"').append(day).append('"');
+        }
+        return json.append(']').toString();
+    }
+}
@@ -0,0 +1,82 @@
+package scheduler.db;
+
+import scheduler.storage.AppointmentRepository;
+import scheduler.storage.AvailabilityRepository;
+import scheduler.storage.StorageBackend;
+import scheduler.storage.UserRepository;
+import scheduler.storage.VaccineRepository;
+
+import java.sql.SQLException;
+
+// The Azure SQL / SQL Server backend, reached through ConnectionManager's pool
+public class SqlServerBackend implements StorageBackend {
+
+    // MigrateOnStartup=false leaves schema changes to an operator; startup then only checks them
+    private static final boolean migrateOnStartup = !"false".equalsIgnoreCase(System.getenv("MigrateOnStartup"));
+
+    private final UserRepository patients = new SqlUserRepository(
+            SqlStatement.INSERT_PATIENT, SqlStatement.GET_PATIENT, SqlStatement.PATIENT_EXISTS,
+            SqlStatement.LIST_PATIENT_USERNAMES);
+    private final UserRepository caregivers = new SqlUserRepository(
+            SqlStatement.INSERT_CAREGIVER, SqlStatement.GET_CAREGIVER, SqlStatement.CAREGIVER_EXISTS,
+            SqlStatement.LIST_CAREGIVER_USERNAMES);
+    private final AvailabilityRepository availabilities = new SqlAvailabilityRepository();
+    private final VaccineRepository vaccines = new SqlVaccineRepository();
+    private final AppointmentRepository appointments = new SqlAppointmentRepository();
+
+    @Override
+    public void initialize() throws SQLException {
+        SchemaMigrator migrator = new SchemaMigrator();
+        SQLException migrationFailure = null;
+        if (migrateOnStartup) {
+            try {
+                migrator.migrate();
+            } catch (SQLException e) {
+                migrationFailure = e;
+            }
+        }
+        // the check runs even when migrating failed, so a failed upgrade stops startup with
+        // SchemaBehindException (carrying the migration error) rather than being carried past
+        try {
+            migrator.verify();
+        } catch (SQLException e) {
+            if (migrationFailure != null) {
+                e.addSuppressed(migrationFailure);
+            }
+            throw e;
+        }
+        if (migrationFailure != null) {
+            throw migrationFailure;
+        }
+    }
+
+    @Override
+    public UserRepository patients() {
+        return patients;
+    }
+
+    @Override
+    public UserRepository caregivers() {
+        return caregivers;
+    }
+
+    @Override
+    public AvailabilityRepository availabilities() {
+        return availabilities;
+    }
+
+    @Override
+    public VaccineRepository vaccines() {
+        return vaccines;
+    }
+
+    @Override
+    public AppointmentRepository appointments() {
+        return appointments;
+    }
+
+    @Override
+    public void close() {
+        ConnectionManager.shutdown();
+    }
+}
@@ -0,0 +1,174 @@
+package scheduler.db;
+
+// Every query the application runs, as a named, fully parameterized statement.
+// ConnectionManager.prepare() caches the prepared handle per pooled connection,
+// so SQL Server sees the same statement text and can reuse its cached plan.
+public enum SqlStatement {
+
+    // Caregivers
+    INSERT_CAREGIVER("INSERT INTO Caregivers VALUES (?, ?, ?)"),
+    GET_CAREGIVER("SELECT Salt, Hash FROM Caregivers WHERE Username = ?"),
+    CAREGIVER_EXISTS("SELECT 1 FROM Caregivers WHERE Username = ?"),
+    LIST_CAREGIVER_USERNAMES("SELECT Username FROM Caregivers"),
+
+    // Patients
+    INSERT_PATIENT("INSERT INTO Patient VALUES (?, ?, ?)"),
+    GET_PATIENT("SELECT Salt, Hash FROM Patient WHERE Username = ?"),
+    PATIENT_EXISTS("SELECT 1 FROM Patient WHERE Username = ?"),
+    LIST_PATIENT_USERNAMES("SELECT Username FROM Patient"),
+
+    // Availabilities
+    // the slot columns are two 48-bit words of the day's free-slot bitset (see DaySlots)
+    INSERT_AVAILABILITY("INSERT INTO Availabilities (Time, Username, SlotsAM, SlotsPM) VALUES (?, ?, ?, ?)"),
+    // Opens the same slots on many days in one statement, less any the caregiver already has
+    // appointments in, adding the days that are new. Parameters: the caregiver, the two slot
+    // words and a JSON array of the days ("yyyy-mm-dd"). Result: one row (Time, SlotsAM, SlotsPM)
+    // per day with its free slots afterwards; a new day with no slot left to open has none.
+    ADD_AVAILABILITY_SLOTS("SET NOCOUNT ON; " +
+            "DECLARE @user varchar(255) = ?, @am bigint = ?, @pm bigint = ?; " +
+            // all 48 bits of a slot word
+            "DECLARE @all bigint = 281474976710655; " +
+            "DECLARE @days TABLE (Time date PRIMARY KEY); " +
+            "INSERT INTO @days SELECT DISTINCT CAST(value AS date) FROM OPENJSON(?); " +
+            "MERGE Availabilities WITH (HOLDLOCK) AS a " +
+            // booked slots are distinct bits, so their sum is their OR; an appointment from
+            // before slots (Slot NULL) books the whole day
+            "USING (SELECT d.Time, " +
+            "           CASE WHEN COUNT(p.ID) > COUNT(p.Slot) THEN @all ELSE " +
+            "           ISNULL(SUM(CASE WHEN p.Slot < 48 THEN POWER(CAST(2 AS bigint), p.Slot) END), 0) END AS BookedAM, " +
+            "           CASE WHEN COUNT(p.ID) > COUNT(p.Slot) THEN @all ELSE " +
+            "           ISNULL(SUM(CASE WHEN p.Slot >= 48 THEN POWER(CAST(2 AS bigint), p.Slot - 48) END), 0) END AS BookedPM " +
+            "       FROM @days d LEFT JOIN Appointment p ON p.Carename = @user AND p.Time = d.Time " +
+            "       GROUP BY d.Time) AS s " +
+            "ON a.Time = s.Time AND a.Username = @user " +
+            "WHEN MATCHED THEN UPDATE SET SlotsAM = a.SlotsAM | (@am & ~s.BookedAM), " +
+            "    SlotsPM = a.SlotsPM | (@pm & ~s.BookedPM) " +
+            // a day with nothing left to open gets no row, so cancelling a whole-day appointment
+            // still brings the day back with the default hours
+            "WHEN NOT MATCHED AND ((@am & ~s.BookedAM) <> 0 OR (@pm & ~s.BookedPM) <> 0) " +
+            "    THEN INSERT (Time, Username, SlotsAM, SlotsPM) " +
+            "    VALUES (s.Time, @user, @am & ~s.BookedAM, @pm & ~s.BookedPM) " +
+            "OUTPUT inserted.Time, inserted.SlotsAM, inserted.SlotsPM;"),
+    // a fully booked day keeps its row, so these skip the rows with no free slot
+    LOAD_AVAILABILITIES("SELECT Time, Username FROM Availabilities WHERE SlotsAM <> 0 OR SlotsPM <> 0"),
+    LIST_CAREGIVERS_ON("SELECT Username FROM Availabilities " +
+            "WHERE Time = ? AND (SlotsAM <> 0 OR SlotsPM <> 0) ORDER BY Username"),
+
+    // Vaccines
+    INSERT_VACCINE("INSERT INTO Vaccines VALUES (?, ?)"),
+    LIST_VACCINES("SELECT Name, Doses FROM Vaccines ORDER BY Name"),
+    GET_VACCINE("SELECT Name, Doses FROM Vaccines WHERE Name = ?"),
+    INCREASE_VACCINE_DOSES("UPDATE Vaccines SET Doses = Doses + ? OUTPUT inserted.Doses WHERE Name = ?"),
+    DECREASE_VACCINE_DOSES("DECLARE @n int = ?; " +
+            "UPDATE Vaccines SET Doses = Doses - @n OUTPUT inserted.Doses WHERE Name = ? AND Doses >= @n"),
+    // one statement for a whole shipment: the parameter is a JSON array of {"Name", "Delta"}
+    ADJUST_VACCINE_DOSES("MERGE Vaccines WITH (HOLDLOCK) AS v " +
+            "USING (SELECT Name, SUM(Delta) AS Delta FROM OPENJSON(?) " +
+            "       WITH (Name varchar(255), Delta int) GROUP BY Name) AS d " +
+            "ON v.Name = d.Name " +
+            "WHEN MATCHED AND v.Doses + d.Delta >= 0 THEN UPDATE SET Doses = v.Doses + d.Delta " +
+            "WHEN NOT MATCHED BY TARGET AND d.Delta >= 0 THEN INSERT (Name, Doses) VALUES (d.Name, d.Delta) " +
+            "OUTPUT inserted.Name, inserted.Doses;"),
+
+    // Appointments
+    // leases the next block of appointment IDs (see IdAllocator): the parameter is the block
+    // size, and Block is the first ID of the block
+    NEXT_APPOINTMENT_ID_BLOCK("DECLARE @first sql_variant; " +
+            "EXEC sp_sequence_get_range @sequence_name = N'AppointmentIdBlocks', @range_size = ?, " +
+            "    @range_first_value = @first OUTPUT; " +
+            "SELECT CAST(@first AS bigint) AS Block;"),
+    // Claims the earliest free slot of the first caregiver (by username) with one on the date,
+    // takes one dose and books the appointment in a single transaction and a single round trip.
+    // The slot is found by bit scanning: x & (x - 1) clears the lowest set bit of the free-slot
+    // word, and x & -x isolates it, whose log2 is the slot. READPAST lets concurrent
+    // reservations skip a caregiver another session is already claiming from instead of
+    // queueing behind it. The appointment ID comes from the caller's IdAllocator, so booking
+    // takes no lock on the Appointment table.
+    // Result: one row (ID, Carename, Slot, DayFull, Outcome), where Outcome is 0 = reserved,
+    // 1 = no caregiver available, 2 = not enough doses, and DayFull is 1 when the slot was the
+    // caregiver's last free one that day.
+    RESERVE("SET NOCOUNT ON; SET XACT_ABORT ON; " +
+            "DECLARE @time date = ?, @vaccine varchar(255) = ?, @patient varchar(255) = ?, @id bigint = ?; " +
+            "DECLARE @claimed TABLE (Username varchar(255), SlotsAM bigint, SlotsPM bigint, " +
+            "    LeftAM bigint, LeftPM bigint); " +
+            "DECLARE @slot smallint; " +
+            "BEGIN TRANSACTION; " +
+            "WITH first_free AS (SELECT TOP (1) Username, SlotsAM, SlotsPM " +
+            "    FROM Availabilities WITH (UPDLOCK, READPAST, ROWLOCK) " +
+            "    WHERE Time = @time AND (SlotsAM <> 0 OR SlotsPM <> 0) ORDER BY Username) " +
+            "UPDATE first_free " +
+            "    SET SlotsAM = CASE WHEN SlotsAM <> 0 THEN SlotsAM & (SlotsAM - 1) ELSE 0 END, " +
+            "        SlotsPM = CASE WHEN SlotsAM <> 0 THEN SlotsPM ELSE SlotsPM & (SlotsPM - 1) END " +
+            "    OUTPUT deleted.Username, deleted.SlotsAM, deleted.SlotsPM, inserted.SlotsAM, inserted.SlotsPM " +
+            "    INTO @claimed; " +
+            "IF @@ROWCOUNT = 0 BEGIN " +
+            "    ROLLBACK TRANSACTION; " +
+            "    SELECT CAST(NULL AS bigint) AS ID, CAST(NULL AS varchar(255)) AS Carename, " +
+            "        CAST(NULL AS smallint) AS Slot, 0 AS DayFull, 1 AS Outcome; " +
+            "    RETURN; " +
+            "END; " +
+            "UPDATE Vaccines SET Doses = Doses - 1 WHERE Name = @vaccine AND Doses > 0; " +
+            "IF @@ROWCOUNT = 0 BEGIN " +
+            "    ROLLBACK TRANSACTION; " +
+            "    SELECT CAST(NULL AS bigint) AS ID, CAST(NULL AS varchar(255)) AS Carename, " +
+            "        CAST(NULL AS smallint) AS Slot, 0 AS DayFull, 2 AS Outcome; " +
+            "    RETURN; " +
+            "END; " +
+            "SELECT @slot = CASE WHEN SlotsAM <> 0 THEN CAST(ROUND(LOG(SlotsAM & -SlotsAM, 2), 0) AS smallint) " +
+            "    ELSE 48 + CAST(ROUND(LOG(SlotsPM & -SlotsPM, 2), 0) AS smallint) END FROM @claimed; " +
+            "INSERT INTO Appointment (ID, Time, Patname, Carename, vaccines, Slot) " +
+            "    SELECT @id, @time, @patient, Username, @vaccine, @slot FROM @claimed; " +
+            "COMMIT TRANSACTION; " +
+            "SELECT @id AS ID, Username AS Carename, @slot AS Slot, " +
+            "    CASE WHEN LeftAM = 0 AND LeftPM = 0 THEN 1 ELSE 0 END AS DayFull, 0 AS Outcome FROM @claimed;"),
+
+    GET_APPOINTMENT("SELECT ID, Time, Patname, Carename, vaccines, Slot FROM Appointment WHERE ID = ?"),
+    // Removes the appointment, frees its slot and returns the dose in one transaction. An
+    // appointment from before slots (Slot is NULL) took the whole day, so its day comes back
+    // with the default hours passed in, unless the caregiver has republished it since.
+    // Result: one row (Cancelled) with the number of appointments removed.
+    CANCEL_APPOINTMENT("SET NOCOUNT ON; SET XACT_ABORT ON; " +
+            "DECLARE @id bigint = ?, @defaultAM bigint = ?, @defaultPM bigint = ?; " +
+            "DECLARE @gone TABLE (Time date, Carename varchar(255), vaccines varchar(255), Slot smallint); " +
+            "BEGIN TRANSACTION; " +
+            "DELETE FROM Appointment OUTPUT deleted.Time, deleted.Carename, deleted.vaccines, deleted.Slot " +
+            "    INTO @gone WHERE ID = @id; " +
+            "UPDATE a SET SlotsAM = a.SlotsAM | CASE WHEN g.Slot < 48 THEN POWER(CAST(2 AS bigint), g.Slot) ELSE 0 END, " +
+            "    SlotsPM = a.SlotsPM | CASE WHEN g.Slot >= 48 THEN POWER(CAST(2 AS bigint), g.Slot - 48) ELSE 0 END " +
+            "    FROM Availabilities a JOIN @gone g ON a.Time = g.Time AND a.Username = g.Carename " +
+            "    WHERE g.Slot IS NOT NULL; " +
+            "INSERT INTO Availabilities (Time, Username, SlotsAM, SlotsPM) SELECT g.Time, g.Carename, " +
+            "    CASE WHEN g.Slot IS NULL THEN @defaultAM " +
+            "        WHEN g.Slot < 48 THEN POWER(CAST(2 AS bigint), g.Slot) ELSE 0 END, " +
+            "    CASE WHEN g.Slot IS NULL THEN @defaultPM " +
+            "        WHEN g.Slot >= 48 THEN POWER(CAST(2 AS bigint), g.Slot - 48) ELSE 0 END " +
+            "    FROM @gone g " +
+            "    WHERE NOT EXISTS (SELECT 1 FROM Availabilities a WHERE a.Time = g.Time AND a.Username = g.Carename); " +
+            "UPDATE v SET Doses = v.Doses + 1 FROM Vaccines v JOIN @gone g ON v.Name = g.vaccines; " +
+            "COMMIT TRANSACTION; " +
+            "SELECT COUNT(*) AS Cancelled FROM @gone;"),
+    // keyset pages: parameters are the user, the last ID already seen, the date range and the
+    // page size; the (Carename, ID) and (Patname, ID) indexes serve them without a sort
+    LIST_CAREGIVER_APPOINTMENTS("DECLARE @user varchar(255) = ?, @after bigint = ?, @from date = ?, @to date = ?; " +
+            "SELECT TOP (?) ID, Time, Patname, Carename, vaccines, Slot FROM Appointment " +
+            "WHERE Carename = @user AND ID > @after AND Time BETWEEN @from AND @to ORDER BY ID"),
+    LIST_PATIENT_APPOINTMENTS("DECLARE @user varchar(255) = ?, @after bigint = ?, @from date = ?, @to date = ?; " +
+            "SELECT TOP (?) ID, Time, Patname, Carename, vaccines, Slot FROM Appointment " +
+            "WHERE Patname = @user AND ID > @after AND Time BETWEEN @from AND @to ORDER BY ID");
+
+    private final String sql;
+
+    SqlStatement(String sql) {
+        this.sql = sql;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    // SET options outlive the batch that sets them: they stay on the connection until turned
+    // off, so a pooled connection that ran one of these is reset before it is handed out again
+    boolean setsSessionOptions() {
+        return sql.startsWith("SET ");
+    }
+}
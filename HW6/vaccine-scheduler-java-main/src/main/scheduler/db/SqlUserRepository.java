@@ -0,0 +1,110 @@
+package scheduler.db;
+
+import scheduler.storage.Credentials;
+import scheduler.storage.UserRepository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Patient and Caregivers have the same shape, so one repository serves both
+class SqlUserRepository implements UserRepository {
+    private static final int FETCH_SIZE = 1000;
+
+    private final SqlStatement insert;
+    private final SqlStatement get;
+    private final SqlStatement exists;
+    private final SqlStatement list;
+
+    SqlUserRepository(SqlStatement insert, SqlStatement get, SqlStatement exists, SqlStatement list) {
+        this.insert = insert;
+        this.get = get;
+        this.exists = exists;
+        this.list = list;
+    }
+
+    @Override
+    public void insert(String username, byte[] salt, byte[] hash) throws SQLException {
+        ConnectionManager cm = new ConnectionManager();
+
+        try {
+            PreparedStatement statement = cm.prepare(insert);
+            statement.setString(1, username);
+            statement.setBytes(2, salt);
+            statement.setBytes(3, hash);
+            statement.executeUpdate();
+        } finally {
+            cm.closeConnection();
+        }
+    }
+
+    @Override
+    public boolean[] insertAll(List<String> usernames, List<Credentials> credentials) throws SQLException {
+        ConnectionManager cm = new ConnectionManager();
+
+        try {
+            PreparedStatement statement = cm.prepare(insert);
+            for (int i = 0; i < usernames.size(); i++) {
+                statement.setString(1, usernames.get(i));
+                statement.setBytes(2, credentials.get(i).getSalt());
+                statement.setBytes(3, credentials.get(i).getHash());
+                statement.addBatch();
+            }
+            return Batches.execute(statement, usernames.size());
+        } finally {
+            cm.closeConnection();
+        }
+    }
+
+    @Override
+    public Credentials find(String username) throws SQLException {
+        ConnectionManager cm = new ConnectionManager();
+
+        try {
+            PreparedStatement statement = cm.prepare(get);
+            statement.setString(1, username);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return null;
+                }
+                return new Credentials(resultSet.getBytes("Salt"), resultSet.getBytes("Hash"));
+            }
+        } finally {
+            cm.closeConnection();
+        }
+    }
+
+    @Override
+    public boolean exists(String username) throws SQLException {
+        ConnectionManager cm = new ConnectionManager();
+
+        try {
+            PreparedStatement statement = cm.prepare(exists);
+            statement.setString(1, username);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next();
+            }
+        } finally {
+            cm.closeConnection();
+        }
+    }
+
+    @Override
+    public void forEachUsername(Consumer<String> visitor) throws SQLException {
+        ConnectionManager cm = new ConnectionManager();
+
+        try {
+            PreparedStatement statement = cm.prepare(list);
+            statement.setFetchSize(FETCH_SIZE);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    visitor.accept(resultSet.getString("Username"));
+                }
+            }
+        } finally {
+            cm.closeConnection();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package scheduler.db;
+
+import scheduler.storage.VaccineRepository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+class SqlVaccineRepository implements VaccineRepository {
+
+    @Override
+    public Integer findDoses(String name) throws SQLException {
+        ConnectionManager cm = new ConnectionManager();
+
+        try {
+            PreparedStatement statement = cm.prepare(SqlStatement.GET_VACCINE);
+            statement.setString(1, name);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getInt("Doses") : null;
+            }
+        } finally {
+            cm.closeConnection();
+        }
+    }
+
+    @Override
+    public void insert(String name, int doses) throws SQLException {
+        ConnectionManager cm = new ConnectionManager();
+
+        try {
+            PreparedStatement statement = cm.prepare(SqlStatement.INSERT_VACCINE);
+            statement.setString(1, name);
+            statement.setInt(2, doses);
+            statement.executeUpdate();
+        } finally {
+            cm.closeConnection();
+        }
+    }
+
+    @Override
+    public Integer increase(String name, int num) throws SQLException {
+        return applyDelta(SqlStatement.INCREASE_VACCINE_DOSES, name, num);
+    }
+
+    @Override
+    public Integer decrease(String name, int num) throws SQLException {
+        return applyDelta(SqlStatement.DECREASE_VACCINE_DOSES, name, num);
+    }
+
+    // runs a conditional delta update and returns the count from the row it touched,
+    // or null if no row qualified
+    private Integer applyDelta(SqlStatement update, String name, int num) throws SQLException {
+        ConnectionManager cm = new ConnectionManager();
+
+        try {
+            PreparedStatement statement = cm.prepare(update);
+            statement.setInt(1, num);
+            statement.setString(2, name);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getInt("Doses") : null;
+            }
+        } finally {
+            cm.closeConnection();
+        }
+    }
+
+    @Override
+    public Map<String, Integer> adjustAll(Map<String, Integer> deltas) throws SQLException {
+        Map<String, Integer> updated = new LinkedHashMap<>();
+        if (deltas.isEmpty()) {
+            return updated;
+        }
+        ConnectionManager cm = new ConnectionManager();
+
+        try {
+            PreparedStatement statement = cm.prepare(SqlStatement.ADJUST_VACCINE_DOSES);
+            statement.setString(1, toJson(deltas));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    updated.put(resultSet.getString("Name"), resultSet.getInt("Doses"));
+                }
+            }
+            return updated;
+        } finally {
+            cm.closeConnection();
+        }
+    }
+
+    @Override
+    public Map<String, Integer> listAll() throws SQLException {
+        ConnectionManager cm = new ConnectionManager();
+
+        try {
+            PreparedStatement statement = cm.prepare(SqlStatement.LIST_VACCINES);
+            Map<String, Integer> vaccines = new LinkedHashMap<>();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    vaccines.put(resultSet.getString("Name"), resultSet.getInt("Doses"));
+                }
+            }
+            return vaccines;
+        } finally {
+            cm.closeConnection();
+        }
+    }
+
+    // [{"Name":"...","Delta":n},...] for OPENJSON
+    private static String toJson(Map<String, Integer> deltas) {
+        StringBuilder json = new StringBuilder("[");
+        for (Map.Entry<String, Integer> entry : deltas.entrySet()) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append("{\"Name\":\"");
+            String name = entry.getKey();
+            for (int i = 0; i < name.length(); i++) {
+                char c = name.charAt(i);
+                if (c == '"' || c == '\\') {
+                    json.append('\\').append(c);
+                } else if (c < 0x20) {
+                    json.append(String.format("\\u%04x", (int) c));
+                } else {
+                    json.append(c);
+                }
+            }
+            json.append("\",\"Delta\":").append(entry.getValue()).append('}');
+        }
+        return json.append(']').toString();
+    }
+}
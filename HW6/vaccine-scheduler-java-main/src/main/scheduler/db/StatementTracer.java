@@ -0,0 +1,118 @@
+package scheduler.db;
+
+import scheduler.metrics.StatementEvent;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+// Wraps statements so each execution shows up as a StatementEvent in a JFR recording. While the
+// event is disabled (no recording, or a recording without it) statements are handed out unwrapped,
+// so the only cost is one flag check per statement.
+final class StatementTracer {
+
+    private static final jdk.jfr.EventType EVENT_TYPE = jdk.jfr.EventType.getEventType(StatementEvent.class);
+
+    private StatementTracer() {
+    }
+
+    static PreparedStatement trace(SqlStatement name, PreparedStatement statement) {
+        if (!EVENT_TYPE.isEnabled()) {
+            return statement;
+        }
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, new StatementHandler(name, statement));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static class StatementHandler implements InvocationHandler {
+        private final SqlStatement name;
+        private final PreparedStatement statement;
+
+        StatementHandler(SqlStatement name, PreparedStatement statement) {
+            this.name = name;
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (args != null && args.length > 0) {
+                // the parameterless execute methods are the only ones traced
+                return StatementTracer.invoke(statement, method, args);
+            }
+            StatementEvent event = new StatementEvent();
+            event.statement = name.name();
+            switch (method.getName()) {
+                case "executeQuery": {
+                    event.begin();
+                    ResultSet resultSet = (ResultSet) StatementTracer.invoke(statement, method, args);
+                    // the event runs until the rows have been read
+                    return Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                            new Class<?>[]{ResultSet.class}, new ResultSetHandler(event, resultSet));
+                }
+                case "executeUpdate": {
+                    event.begin();
+                    try {
+                        int rows = (Integer) StatementTracer.invoke(statement, method, args);
+                        event.rows = rows;
+                        return rows;
+                    } finally {
+                        event.commit();
+                    }
+                }
+                case "executeBatch": {
+                    event.begin();
+                    try {
+                        int[] counts = (int[]) StatementTracer.invoke(statement, method, args);
+                        for (int count : counts) {
+                            event.rows += Math.max(0, count);
+                        }
+                        return counts;
+                    } finally {
+                        event.commit();
+                    }
+                }
+                default:
+                    return StatementTracer.invoke(statement, method, args);
+            }
+        }
+    }
+
+    private static class ResultSetHandler implements InvocationHandler {
+        private final StatementEvent event;
+        private final ResultSet resultSet;
+        private boolean committed = false;
+
+        ResultSetHandler(StatementEvent event, ResultSet resultSet) {
+            this.event = event;
+            this.resultSet = resultSet;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String methodName = method.getName();
+            if (methodName.equals("next")) {
+                boolean more = (Boolean) StatementTracer.invoke(resultSet, method, args);
+                if (more) {
+                    event.rows++;
+                }
+                return more;
+            }
+            if (methodName.equals("close") && !committed) {
+                committed = true;
+                event.commit();
+            }
+            return StatementTracer.invoke(resultSet, method, args);
+        }
+    }
+}
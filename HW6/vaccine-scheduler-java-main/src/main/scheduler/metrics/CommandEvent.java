@@ -0,0 +1,17 @@
+package scheduler.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("scheduler.Command")
+@Label("Command")
+@Category("Scheduler")
+public class CommandEvent extends jdk.jfr.Event {
+
+    @Label("Command")
+    public String command;
+
+    @Label("Failed")
+    public boolean failed;
+}
@@ -0,0 +1,54 @@
+package scheduler.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Everything recorded for one command name
+public class CommandMetrics {
+
+    private final String command;
+    private final Histogram latencyNanos = new Histogram();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder roundTrips = new LongAdder();
+    private final LongAdder connectionWaitNanos = new LongAdder();
+
+    CommandMetrics(String command) {
+        this.command = command;
+    }
+
+    void record(long nanos, boolean failed, int trips, long waitNanos) {
+        latencyNanos.record(nanos);
+        if (failed) {
+            failures.increment();
+        }
+        roundTrips.add(trips);
+        connectionWaitNanos.add(waitNanos);
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public Histogram getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    public long getCount() {
+        return latencyNanos.getCount();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getSuccesses() {
+        return getCount() - getFailures();
+    }
+
+    public long getRoundTrips() {
+        return roundTrips.sum();
+    }
+
+    public long getConnectionWaitNanos() {
+        return connectionWaitNanos.sum();
+    }
+}
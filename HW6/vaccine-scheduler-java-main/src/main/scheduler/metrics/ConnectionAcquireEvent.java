@@ -0,0 +1,16 @@
+package scheduler.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("scheduler.ConnectionAcquire")
+@Label("Connection Acquire")
+@Description("Borrowing a connection from the pool, including any wait, validation or new connection")
+@Category({"Scheduler", "Database"})
+public class ConnectionAcquireEvent extends jdk.jfr.Event {
+
+    @Label("Acquired")
+    public boolean acquired;
+}
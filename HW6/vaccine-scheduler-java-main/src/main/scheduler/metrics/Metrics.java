@@ -0,0 +1,243 @@
+package scheduler.metrics;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+// Per-command latency, failures, database round trips and connection wait time.
+// Scheduler.execute brackets each command with begin()/end(); the database layer reports round
+// trips and connection waits through roundTrip()/connectionWait(), which are charged to the
+// command running on the current thread. Nothing here allocates on the recording path.
+// Components with state of their own (the password hasher, the connection pool) register
+// readings with registerGauge()/registerCounter(); those are read only when metrics are written.
+public class Metrics {
+
+    private static final ConcurrentHashMap<String, CommandMetrics> commands = new ConcurrentHashMap<>();
+
+    // the command in progress on this thread; one reusable object per thread
+    private static final ThreadLocal<Sample> current = ThreadLocal.withInitial(Sample::new);
+
+    private static ScheduledExecutorService dumper = null;
+
+    // VaccineCache reconciliations and how many doses the cache was off by
+    private static final AtomicLong reconciliations = new AtomicLong();
+    private static final AtomicLong lastDrift = new AtomicLong();
+    private static final AtomicLong totalDrift = new AtomicLong();
+
+    // registered readings by metric name, so related ones list together
+    private static final ConcurrentSkipListMap<String, Registered> registered = new ConcurrentSkipListMap<>();
+
+    private static class Registered {
+        final String type;
+        final DoubleSupplier value;
+
+        Registered(String type, DoubleSupplier value) {
+            this.type = type;
+            this.value = value;
+        }
+    }
+
+    private static class Sample {
+        CommandMetrics metrics;
+        long start;
+        boolean failed;
+        int roundTrips;
+        long connectionWaitNanos;
+    }
+
+    public static void begin(String command) {
+        Sample sample = current.get();
+        sample.metrics = commands.computeIfAbsent(command, CommandMetrics::new);
+        sample.start = System.nanoTime();
+        sample.failed = false;
+        sample.roundTrips = 0;
+        sample.connectionWaitNanos = 0;
+    }
+
+    // records the command in progress; returns whether it failed
+    public static boolean end() {
+        Sample sample = current.get();
+        if (sample.metrics == null) {
+            return false;
+        }
+        sample.metrics.record(System.nanoTime() - sample.start, sample.failed,
+                sample.roundTrips, sample.connectionWaitNanos);
+        sample.metrics = null;
+        return sample.failed;
+    }
+
+    // marks the command in progress as failed
+    public static void failure() {
+        current.get().failed = true;
+    }
+
+    public static void roundTrip() {
+        current.get().roundTrips++;
+    }
+
+    public static void connectionWait(long nanos) {
+        current.get().connectionWaitNanos += nanos;
+    }
+
+    public static List<CommandMetrics> snapshot() {
+        List<CommandMetrics> all = new ArrayList<>(commands.values());
+        all.sort(Comparator.comparing(CommandMetrics::getCommand));
+        return all;
+    }
+
+    // one VaccineCache reconciliation, and how many doses the cache was off by
+    public static void vaccineCacheReconciled(long drift) {
+        lastDrift.set(drift);
+        totalDrift.addAndGet(drift);
+        reconciliations.incrementAndGet();
+    }
+
+    // a value that can go up and down, e.g. a queue depth; registering a name again replaces it
+    public static void registerGauge(String name, DoubleSupplier value) {
+        registered.put(name, new Registered("gauge", value));
+    }
+
+    // a running total, e.g. cache hits; registering a name again replaces it
+    public static void registerCounter(String name, LongSupplier value) {
+        registered.put(name, new Registered("counter", value::getAsLong));
+    }
+
+    // the stats command's table; latencies in milliseconds
+    public static void printTable(PrintStream out) {
+        printTable(out, snapshot());
+        if (reconciliations.get() > 0) {
+            out.println("vaccine cache: " + reconciliations.get() + " reconciliations, last drift "
+                    + lastDrift.get() + " doses, total drift " + totalDrift.get() + " doses");
+        }
+        for (Map.Entry<String, Registered> entry : registered.entrySet()) {
+            out.println(String.format(Locale.ROOT, "%-48s %s", entry.getKey(),
+                    format(entry.getValue().value.getAsDouble())));
+        }
+    }
+
+    private static void printTable(PrintStream out, List<CommandMetrics> all) {
+        if (all.isEmpty()) {
+            out.println("No commands recorded yet.");
+            return;
+        }
+        out.println(String.format(Locale.ROOT, "%-26s %8s %7s %9s %9s %9s %9s %9s %10s",
+                "command", "count", "errors", "p50 ms", "p90 ms", "p99 ms", "max ms", "db trips", "conn ms"));
+        for (CommandMetrics m : all) {
+            Histogram h = m.getLatencyNanos();
+            long n = Math.max(1, m.getCount());
+            out.println(String.format(Locale.ROOT, "%-26s %8d %7d %9.3f %9.3f %9.3f %9.3f %9.2f %10.3f",
+                    m.getCommand(), m.getCount(), m.getFailures(),
+                    millis(h.getValueAtQuantile(0.50)), millis(h.getValueAtQuantile(0.90)),
+                    millis(h.getValueAtQuantile(0.99)), millis(h.getMax()),
+                    (double) m.getRoundTrips() / n, millis(m.getConnectionWaitNanos()) / n));
+        }
+    }
+
+    // Prometheus text exposition format
+    public static void writeText(Writer out) throws IOException {
+        List<CommandMetrics> all = snapshot();
+        double[] quantiles = {0.5, 0.9, 0.99, 0.999};
+        out.write("# TYPE scheduler_command_latency_seconds summary\n");
+        for (CommandMetrics m : all) {
+            Histogram h = m.getLatencyNanos();
+            for (double q : quantiles) {
+                out.write("scheduler_command_latency_seconds{command=\"" + m.getCommand() + "\",quantile=\""
+                        + q + "\"} " + seconds(h.getValueAtQuantile(q)) + "\n");
+            }
+            out.write("scheduler_command_latency_seconds_sum{command=\"" + m.getCommand() + "\"} "
+                    + seconds(h.getSum()) + "\n");
+            out.write("scheduler_command_latency_seconds_count{command=\"" + m.getCommand() + "\"} "
+                    + h.getCount() + "\n");
+        }
+        counter(out, all, "scheduler_command_success_total", false, CommandMetrics::getSuccesses);
+        counter(out, all, "scheduler_command_failure_total", false, CommandMetrics::getFailures);
+        counter(out, all, "scheduler_db_round_trips_total", false, CommandMetrics::getRoundTrips);
+        counter(out, all, "scheduler_connection_wait_seconds_total", true, CommandMetrics::getConnectionWaitNanos);
+        out.write("# TYPE scheduler_vaccine_cache_reconciliations_total counter\n");
+        out.write("scheduler_vaccine_cache_reconciliations_total " + reconciliations.get() + "\n");
+        out.write("# TYPE scheduler_vaccine_cache_drift_doses gauge\n");
+        out.write("scheduler_vaccine_cache_drift_doses " + lastDrift.get() + "\n");
+        out.write("# TYPE scheduler_vaccine_cache_drift_doses_total counter\n");
+        out.write("scheduler_vaccine_cache_drift_doses_total " + totalDrift.get() + "\n");
+        for (Map.Entry<String, Registered> entry : registered.entrySet()) {
+            out.write("# TYPE " + entry.getKey() + " " + entry.getValue().type + "\n");
+            out.write(entry.getKey() + " " + format(entry.getValue().value.getAsDouble()) + "\n");
+        }
+    }
+
+    // whole numbers without a fraction, the rest to six significant digits
+    private static String format(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return String.format(Locale.ROOT, "%.6g", value);
+    }
+
+    private interface Reading {
+        long of(CommandMetrics metrics);
+    }
+
+    private static void counter(Writer out, List<CommandMetrics> all, String name, boolean nanos, Reading reading)
+            throws IOException {
+        out.write("# TYPE " + name + " counter\n");
+        for (CommandMetrics m : all) {
+            long value = reading.of(m);
+            out.write(name + "{command=\"" + m.getCommand() + "\"} "
+                    + (nanos ? String.valueOf(seconds(value)) : String.valueOf(value)) + "\n");
+        }
+    }
+
+    // writes the metrics to the file every intervalSeconds (and once more at exit); the file is
+    // replaced atomically so a scraper never sees half of it
+    public static synchronized void startDump(String file, int intervalSeconds) {
+        if (dumper != null) {
+            return;
+        }
+        Path path = Paths.get(file).toAbsolutePath();
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-dump");
+            t.setDaemon(true);
+            return t;
+        });
+        dumper.scheduleAtFixedRate(() -> dump(path), intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> dump(path), "metrics-final-dump"));
+    }
+
+    private static void dump(Path path) {
+        try {
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (Writer out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                writeText(out);
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1e9;
+    }
+}
@@ -0,0 +1,17 @@
+package scheduler.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("scheduler.PasswordHash")
+@Label("PBKDF2 Hash")
+@Category({"Scheduler", "Security"})
+public class PasswordHashEvent extends jdk.jfr.Event {
+
+    @Label("Iterations")
+    public int iterations;
+
+    @Label("Key Length")
+    public int keyLength;
+}
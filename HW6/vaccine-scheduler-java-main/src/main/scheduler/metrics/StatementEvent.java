@@ -0,0 +1,20 @@
+package scheduler.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("scheduler.Statement")
+@Label("Statement Execution")
+@Description("One execution of a prepared statement; for queries it lasts until the result set is closed")
+@Category({"Scheduler", "Database"})
+public class StatementEvent extends jdk.jfr.Event {
+
+    @Label("Statement")
+    public String statement;
+
+    @Label("Rows")
+    @Description("Rows read for a query, rows changed for an update or batch")
+    public long rows;
+}
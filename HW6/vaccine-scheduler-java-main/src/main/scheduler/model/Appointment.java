@@ -0,0 +1,50 @@
+package scheduler.model;
+
+import java.sql.Date;
+
+public class Appointment {
+    public static final int NO_SLOT = -1;
+
+    private final long id;
+    private final Date time;
+    private final String patient;
+    private final String caregiver;
+    private final String vaccine;
+    // the 15-minute slot of the day (see DaySlots), or NO_SLOT for appointments booked before
+    // slots existed, which took the caregiver's whole day
+    private final int slot;
+
+    public Appointment(long id, Date time, String patient, String caregiver, String vaccine, int slot) {
+        this.id = id;
+        this.time = time;
+        this.patient = patient;
+        this.caregiver = caregiver;
+        this.vaccine = vaccine;
+        this.slot = slot;
+    }
+
+    // Getters
+    public long getId() {
+        return id;
+    }
+
+    public Date getTime() {
+        return time;
+    }
+
+    public String getPatient() {
+        return patient;
+    }
+
+    public String getCaregiver() {
+        return caregiver;
+    }
+
+    public String getVaccine() {
+        return vaccine;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+}
@@ -1,10 +1,17 @@
 package scheduler.model;
 
-import scheduler.db.ConnectionManager;
+import scheduler.cache.AvailabilityIndex;
+import scheduler.cache.UsernameFilter;
+import scheduler.storage.Credentials;
+import scheduler.storage.DaySlots;
+import scheduler.storage.Storage;
+import scheduler.util.PasswordHasher;
 import scheduler.util.Util;
 
 import java.sql.*;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 public class Caregiver {
     private final String username;
@@ -37,37 +44,27 @@ public class Caregiver {
     }
 
     public void saveToDB() throws SQLException {
-        ConnectionManager cm = new ConnectionManager();
-        Connection con = cm.createConnection();
-
-        String addCaregiver = "INSERT INTO Caregivers VALUES (? , ?, ?)";
         try {
-            PreparedStatement statement = con.prepareStatement(addCaregiver);
-            statement.setString(1, this.username);
-            statement.setBytes(2, this.salt);
-            statement.setBytes(3, this.hash);
-            statement.executeUpdate();
+            Storage.backend().caregivers().insert(this.username, this.salt, this.hash);
+            UsernameFilter.caregivers().add(this.username);
         } catch (SQLException e) {
             throw new SQLException();
-        } finally {
-            cm.closeConnection();
         }
     }
 
-    public void uploadAvailability(Date d) throws SQLException {
-        ConnectionManager cm = new ConnectionManager();
-        Connection con = cm.createConnection();
-
-        String addAvailability = "INSERT INTO Availabilities VALUES (? , ?)";
+    // opens the same slots on each of the days in one statement, leaving the slots the caregiver
+    // is already booked in closed; returns their free slots on each day afterwards
+    public Map<Date, DaySlots> uploadAvailability(List<Date> days, DaySlots slots) throws SQLException {
         try {
-            PreparedStatement statement = con.prepareStatement(addAvailability);
-            statement.setDate(1, d);
-            statement.setString(2, this.username);
-            statement.executeUpdate();
+            Map<Date, DaySlots> free = Storage.backend().availabilities().addSlots(this.username, days, slots);
+            for (Map.Entry<Date, DaySlots> day : free.entrySet()) {
+                if (!day.getValue().isEmpty()) {
+                    AvailabilityIndex.getInstance().add(day.getKey(), this.username);
+                }
+            }
+            return free;
         } catch (SQLException e) {
             throw new SQLException();
-        } finally {
-            cm.closeConnection();
         }
     }
 
@@ -99,35 +96,27 @@ public class Caregiver {
         }
 
         public Caregiver get() throws SQLException {
-            ConnectionManager cm = new ConnectionManager();
-            Connection con = cm.createConnection();
-
-            String getCaregiver = "SELECT Salt, Hash FROM Caregivers WHERE Username = ?";
+            Credentials credentials;
             try {
-                PreparedStatement statement = con.prepareStatement(getCaregiver);
-                statement.setString(1, this.username);
-                ResultSet resultSet = statement.executeQuery();
-                while (resultSet.next()) {
-                    byte[] salt = resultSet.getBytes("Salt");
-                    // we need to call Util.trim() to get rid of the paddings,
-                    // try to remove the use of Util.trim() and you'll see :)
-                    byte[] hash = Util.trim(resultSet.getBytes("Hash"));
-                    // check if the password matches
-                    byte[] calculatedHash = Util.generateHash(password, salt);
-                    if (!Arrays.equals(hash, calculatedHash)) {
-                        return null;
-                    } else {
-                        this.salt = salt;
-                        this.hash = hash;
-                        return new Caregiver(this);
-                    }
-                }
-                return null;
+                credentials = Storage.backend().caregivers().find(this.username);
             } catch (SQLException e) {
                 throw new SQLException();
-            } finally {
-                cm.closeConnection();
             }
+            if (credentials == null) {
+                return null;
+            }
+            byte[] salt = credentials.getSalt();
+            // we need to call Util.trim() to get rid of the paddings,
+            // try to remove the use of Util.trim() and you'll see :)
+            byte[] hash = Util.trim(credentials.getHash());
+            // check if the password matches
+            byte[] calculatedHash = PasswordHasher.getInstance().hash(password, salt);
+            if (!Arrays.equals(hash, calculatedHash)) {
+                return null;
+            }
+            this.salt = salt;
+            this.hash = hash;
+            return new Caregiver(this);
         }
     }
 }
@@ -1,6 +1,9 @@
 package scheduler.model;
 
-import scheduler.db.ConnectionManager;
+import scheduler.cache.UsernameFilter;
+import scheduler.storage.Credentials;
+import scheduler.storage.Storage;
+import scheduler.util.PasswordHasher;
 import scheduler.util.Util;
 
 import java.sql.*;
@@ -38,20 +41,11 @@ public class Patient {
     }
 
     public void saveToDB() throws SQLException {
-        ConnectionManager cm = new ConnectionManager();
-        Connection con = cm.createConnection();
-
-        String addPatient = "INSERT INTO Patient VALUES (? , ?, ?)";
         try {
-            PreparedStatement statement = con.prepareStatement(addPatient);
-            statement.setString(1, this.username);
-            statement.setBytes(2, this.salt);
-            statement.setBytes(3, this.hash);
-            statement.executeUpdate();
+            Storage.backend().patients().insert(this.username, this.salt, this.hash);
+            UsernameFilter.patients().add(this.username);
         } catch (SQLException e) {
             throw new SQLException();
-        } finally {
-            cm.closeConnection();
         }
     }
 
@@ -83,35 +77,27 @@ public class Patient {
         }
 
         public Patient get() throws SQLException {
-            ConnectionManager cm = new ConnectionManager();
-            Connection con = cm.createConnection();
-
-            String getPatient = "SELECT Salt, Hash FROM Patient WHERE Username = ?";
+            Credentials credentials;
             try {
-                PreparedStatement statement = con.prepareStatement(getPatient);
-                statement.setString(1, this.username);
-                ResultSet resultSet = statement.executeQuery();
-                while (resultSet.next()) {
-                    byte[] salt = resultSet.getBytes("Salt");
-                    // we need to call Util.trim() to get rid of the paddings,
-                    // try to remove the use of Util.trim() and you'll see :)
-                    byte[] hash = Util.trim(resultSet.getBytes("Hash"));
-                    // check if the password matches
-                    byte[] calculatedHash = Util.generateHash(password, salt);
-                    if (!Arrays.equals(hash, calculatedHash)) {
-                        return null;
-                    } else {
-                        this.salt = salt;
-                        this.hash = hash;
-                        return new Patient(this);
-                    }
-                }
-                return null;
+                credentials = Storage.backend().patients().find(this.username);
             } catch (SQLException e) {
                 throw new SQLException();
-            } finally {
-                cm.closeConnection();
             }
+            if (credentials == null) {
+                return null;
+            }
+            byte[] salt = credentials.getSalt();
+            // we need to call Util.trim() to get rid of the paddings,
+            // try to remove the use of Util.trim() and you'll see :)
+            byte[] hash = Util.trim(credentials.getHash());
+            // check if the password matches
+            byte[] calculatedHash = PasswordHasher.getInstance().hash(password, salt);
+            if (!Arrays.equals(hash, calculatedHash)) {
+                return null;
+            }
+            this.salt = salt;
+            this.hash = hash;
+            return new Patient(this);
         }
     }
 }
@@ -1,11 +1,10 @@
 package scheduler.model;
 
-import scheduler.db.ConnectionManager;
+import scheduler.cache.VaccineCache;
+import scheduler.storage.Storage;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Map;
 
 public class Vaccine {
     private final String vaccineName;
@@ -31,19 +30,11 @@ public class Vaccine {
     }
 
     public void saveToDB() throws SQLException {
-        ConnectionManager cm = new ConnectionManager();
-        Connection con = cm.createConnection();
-
-        String addDoses = "INSERT INTO vaccines VALUES (?, ?)";
         try {
-            PreparedStatement statement = con.prepareStatement(addDoses);
-            statement.setString(1, this.vaccineName);
-            statement.setInt(2, this.availableDoses);
-            statement.executeUpdate();
+            Storage.backend().vaccines().insert(this.vaccineName, this.availableDoses);
+            VaccineCache.getInstance().set(this.vaccineName, this.availableDoses);
         } catch (SQLException e) {
             throw new SQLException();
-        } finally {
-            cm.closeConnection();
         }
     }
 
@@ -52,44 +43,41 @@ public class Vaccine {
         if (num <= 0) {
             throw new IllegalArgumentException("Argument cannot be negative!");
         }
-        this.availableDoses += num;
-
-        ConnectionManager cm = new ConnectionManager();
-        Connection con = cm.createConnection();
-
-        String removeAvailability  = "UPDATE vaccines SET Doses = ? WHERE name = ?;";
-        try {
-            PreparedStatement statement = con.prepareStatement(removeAvailability);
-            statement.setInt(1, this.availableDoses);
-            statement.setString(2, this.vaccineName);
-            statement.executeUpdate();
-        } catch (SQLException e) {
-            throw new SQLException();
-        } finally {
-            cm.closeConnection();
+        Integer doses = Storage.backend().vaccines().increase(this.vaccineName, num);
+        if (doses == null) {
+            throw new SQLException("Vaccine " + vaccineName + " does not exist");
         }
+        VaccineCache.getInstance().set(this.vaccineName, doses);
+        this.availableDoses = doses;
     }
 
-    // Decrement the available doses
+    // Decrement the available doses; the check happens in the store, so concurrent
+    // sessions can never take the count below zero
     public void decreaseAvailableDoses(int num) throws SQLException {
-        if (this.availableDoses - num < 0) {
+        if (num <= 0) {
+            throw new IllegalArgumentException("Argument cannot be negative!");
+        }
+        Integer doses = Storage.backend().vaccines().decrease(this.vaccineName, num);
+        if (doses == null) {
             throw new IllegalArgumentException("Not enough available doses!");
         }
-        this.availableDoses -= num;
-        ConnectionManager cm = new ConnectionManager();
-        Connection con = cm.createConnection();
+        VaccineCache.getInstance().set(this.vaccineName, doses);
+        this.availableDoses = doses;
+    }
 
-        String removeAvailability  = "UPDATE vaccines SET Doses = ? WHERE name = ?;";
+    // Applies a shipment (or any set of adjustments) for many vaccines in one statement.
+    // Vaccines that do not exist yet are created with the given count. An adjustment that
+    // would take a count below zero is skipped; the returned map holds the new dose count
+    // for every vaccine that was actually adjusted.
+    public static Map<String, Integer> adjustDoses(Map<String, Integer> deltas) throws SQLException {
+        Map<String, Integer> updated;
         try {
-            PreparedStatement statement = con.prepareStatement(removeAvailability);
-            statement.setInt(1, this.availableDoses);
-            statement.setString(2, this.vaccineName);
-            statement.executeUpdate();
+            updated = Storage.backend().vaccines().adjustAll(deltas);
         } catch (SQLException e) {
             throw new SQLException();
-        } finally {
-            cm.closeConnection();
         }
+        updated.forEach(VaccineCache.getInstance()::set);
+        return updated;
     }
 
     @Override
@@ -123,24 +111,17 @@ public class Vaccine {
         }
 
         public Vaccine get() throws SQLException {
-            ConnectionManager cm = new ConnectionManager();
-            Connection con = cm.createConnection();
-
-            String getVaccine = "SELECT Name, Doses FROM Vaccines WHERE Name = ?";
+            Integer doses;
             try {
-                PreparedStatement statement = con.prepareStatement(getVaccine);
-                statement.setString(1, this.vaccineName);
-                ResultSet resultSet = statement.executeQuery();
-                while (resultSet.next()) {
-                    this.availableDoses = resultSet.getInt("Doses");
-                    return new Vaccine(this);
-                }
-                return null;
+                doses = VaccineCache.getInstance().findDoses(this.vaccineName);
             } catch (SQLException e) {
                 throw new SQLException();
-            } finally {
-                cm.closeConnection();
             }
+            if (doses == null) {
+                return null;
+            }
+            this.availableDoses = doses;
+            return new Vaccine(this);
         }
     }
 }
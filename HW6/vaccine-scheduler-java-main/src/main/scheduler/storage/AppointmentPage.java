@@ -0,0 +1,54 @@
+package scheduler.storage;
+
+import scheduler.model.Appointment;
+
+import java.sql.Date;
+
+// Which slice of a user's appointments to read: IDs after a keyset cursor, optionally limited to
+// a date range, at most limit rows, in ID order
+public class AppointmentPage {
+
+    public static final long FIRST = -1;
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    private final long afterId;
+    private final int limit;
+    private final Date from;
+    private final Date to;
+
+    public AppointmentPage(long afterId, int limit, Date from, Date to) {
+        this.afterId = afterId;
+        this.limit = limit;
+        this.from = from;
+        this.to = to;
+    }
+
+    // every appointment
+    public static AppointmentPage all() {
+        return new AppointmentPage(FIRST, UNLIMITED, null, null);
+    }
+
+    public long getAfterId() {
+        return afterId;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    // null means no lower bound
+    public Date getFrom() {
+        return from;
+    }
+
+    // null means no upper bound
+    public Date getTo() {
+        return to;
+    }
+
+    public boolean includes(Appointment appointment) {
+        return appointment.getId() > afterId
+                && (from == null || !appointment.getTime().before(from))
+                && (to == null || !appointment.getTime().after(to));
+    }
+}
@@ -0,0 +1,32 @@
+package scheduler.storage;
+
+import scheduler.model.Appointment;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface AppointmentRepository {
+
+    // atomically claims the earliest free slot of the first caregiver (by username) with one on
+    // the date and one dose of the vaccine, and books it
+    Reservation reserve(Date time, String vaccine, String patient) throws SQLException;
+
+    // null if there is no such appointment
+    Appointment find(long id) throws SQLException;
+
+    // atomically removes the appointment, frees the caregiver's slot and returns the dose;
+    // returns false if the appointment no longer exists
+    boolean cancel(long id) throws SQLException;
+
+    // streams the page of the caregiver's appointments to the visitor, in ID order;
+    // returns the number of rows visited
+    int forEachForCaregiver(String caregiver, AppointmentPage page, Consumer<Appointment> visitor)
+            throws SQLException;
+
+    // streams the page of the patient's appointments to the visitor, in ID order;
+    // returns the number of rows visited
+    int forEachForPatient(String patient, AppointmentPage page, Consumer<Appointment> visitor)
+            throws SQLException;
+}
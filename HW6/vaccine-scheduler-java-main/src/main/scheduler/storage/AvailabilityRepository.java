@@ -0,0 +1,30 @@
+package scheduler.storage;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+// A caregiver's availability is a row per day holding which of the day's slots are still free
+// (see DaySlots). Reserving a slot clears its bit and cancelling sets it again, so a row stays
+// once its day is fully booked.
+public interface AvailabilityRepository {
+
+    // opens the same slots on every one of the days in one statement, adding the days the
+    // caregiver had not published yet; slots they already have an appointment in stay closed.
+    // Returns the caregiver's free slots on each day afterwards, in the order given. Fails if the
+    // caregiver does not exist.
+    Map<Date, DaySlots> addSlots(String caregiver, List<Date> days, DaySlots slots) throws SQLException;
+
+    // inserts many (date, caregiver) rows, each with DaySlots.DEFAULT_HOURS, in one round trip;
+    // rows for a day the caregiver already published, or for an unknown caregiver, are skipped,
+    // and the result says which rows went in
+    boolean[] insertAll(List<Date> times, List<String> caregivers) throws SQLException;
+
+    // caregivers with at least one free slot on the date, ordered by username
+    List<String> caregiversOn(Date time) throws SQLException;
+
+    // visits every (date, caregiver) pair with at least one free slot
+    void forEach(BiConsumer<Date, String> visitor) throws SQLException;
+}
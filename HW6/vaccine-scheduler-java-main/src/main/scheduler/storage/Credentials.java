@@ -0,0 +1,20 @@
+package scheduler.storage;
+
+// The stored salt and hash for a patient or caregiver
+public class Credentials {
+    private final byte[] salt;
+    private final byte[] hash;
+
+    public Credentials(byte[] salt, byte[] hash) {
+        this.salt = salt;
+        this.hash = hash;
+    }
+
+    public byte[] getSalt() {
+        return salt;
+    }
+
+    public byte[] getHash() {
+        return hash;
+    }
+}
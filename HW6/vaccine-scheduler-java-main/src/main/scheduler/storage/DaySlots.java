@@ -0,0 +1,142 @@
+package scheduler.storage;
+
+// One caregiver's free slots on one day, as a bitset: the day is cut into 15-minute slots, slot
+// n starting at n * 15 minutes past midnight, and bit n is set while slot n is free. The 96
+// slots are kept in two 48-bit words (morning and afternoon) so each fits a signed bigint
+// column without touching the sign bit; see the SlotsAM and SlotsPM columns of Availabilities.
+// Instances are immutable.
+public final class DaySlots {
+
+    public static final int SLOT_MINUTES = 15;
+    public static final int SLOTS_PER_DAY = 24 * 60 / SLOT_MINUTES;
+    public static final int WORD_SLOTS = SLOTS_PER_DAY / 2;
+
+    private static final long WORD_MASK = (1L << WORD_SLOTS) - 1;
+
+    public static final DaySlots NONE = new DaySlots(0, 0);
+    public static final DaySlots ALL = new DaySlots(WORD_MASK, WORD_MASK);
+    // what a day is published with when no hours are given: 09:00 to 17:00. The column defaults
+    // in create.sql (and migration V5) are the same two words.
+    public static final DaySlots DEFAULT_HOURS = between(9 * 60 / SLOT_MINUTES, 17 * 60 / SLOT_MINUTES);
+
+    private final long am;
+    private final long pm;
+
+    private DaySlots(long am, long pm) {
+        this.am = am;
+        this.pm = pm;
+    }
+
+    public static DaySlots of(long am, long pm) {
+        if (am == 0 && pm == 0) {
+            return NONE;
+        }
+        return new DaySlots(am & WORD_MASK, pm & WORD_MASK);
+    }
+
+    // the slots from (inclusive) to to (exclusive)
+    public static DaySlots between(int from, int to) {
+        if (from < 0 || to > SLOTS_PER_DAY || from >= to) {
+            throw new IllegalArgumentException("Not a slot range: " + from + "-" + to);
+        }
+        return of(wordRange(from, to, 0), wordRange(from, to, WORD_SLOTS));
+    }
+
+    public static DaySlots single(int slot) {
+        return between(slot, slot + 1);
+    }
+
+    // parses HH:MM-HH:MM, both ends on a slot boundary; 24:00 is accepted as the end of the day
+    public static DaySlots parseHours(String hours) {
+        int dash = hours.indexOf('-');
+        if (dash < 0) {
+            throw new IllegalArgumentException("Not an hour range: " + hours);
+        }
+        return between(parseSlot(hours.substring(0, dash)), parseSlot(hours.substring(dash + 1)));
+    }
+
+    private static int parseSlot(String time) {
+        if (time.length() != 5 || time.charAt(2) != ':') {
+            throw new IllegalArgumentException("Not a time: " + time);
+        }
+        int hour = Integer.parseInt(time.substring(0, 2));
+        int minute = Integer.parseInt(time.substring(3));
+        int minutes = hour * 60 + minute;
+        if (minute >= 60 || minutes > 24 * 60 || minutes % SLOT_MINUTES != 0) {
+            throw new IllegalArgumentException("Not a slot boundary: " + time);
+        }
+        return minutes / SLOT_MINUTES;
+    }
+
+    // the bits of [from, to) that fall into the word starting at slot base
+    private static long wordRange(int from, int to, int base) {
+        int lo = Math.max(from - base, 0);
+        int hi = Math.min(to - base, WORD_SLOTS);
+        if (lo >= hi) {
+            return 0;
+        }
+        return (WORD_MASK >>> (WORD_SLOTS - (hi - lo))) << lo;
+    }
+
+    // the start of the slot, as HH:MM
+    public static String time(int slot) {
+        int minutes = slot * SLOT_MINUTES;
+        int hour = minutes / 60;
+        int minute = minutes % 60;
+        return (hour < 10 ? "0" : "") + hour + (minute < 10 ? ":0" : ":") + minute;
+    }
+
+    public long getAm() {
+        return am;
+    }
+
+    public long getPm() {
+        return pm;
+    }
+
+    public boolean isEmpty() {
+        return am == 0 && pm == 0;
+    }
+
+    public int count() {
+        return Long.bitCount(am) + Long.bitCount(pm);
+    }
+
+    public boolean isFree(int slot) {
+        return slot < WORD_SLOTS ? (am >>> slot & 1) != 0 : (pm >>> (slot - WORD_SLOTS) & 1) != 0;
+    }
+
+    // the earliest free slot, or -1 if the day is full; a bit scan, not a loop over the slots
+    public int firstFree() {
+        if (am != 0) {
+            return Long.numberOfTrailingZeros(am);
+        }
+        if (pm != 0) {
+            return WORD_SLOTS + Long.numberOfTrailingZeros(pm);
+        }
+        return -1;
+    }
+
+    public DaySlots with(DaySlots other) {
+        return of(am | other.am, pm | other.pm);
+    }
+
+    public DaySlots without(DaySlots other) {
+        return of(am & ~other.am, pm & ~other.pm);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof DaySlots && ((DaySlots) o).am == am && ((DaySlots) o).pm == pm;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(am) * 31 + Long.hashCode(pm);
+    }
+
+    @Override
+    public String toString() {
+        return count() + " free slots";
+    }
+}
@@ -0,0 +1,60 @@
+package scheduler.storage;
+
+import scheduler.util.Util;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Hands out unique 64-bit IDs without a round trip per ID. Each block of blockSize IDs is leased
+// whole from a persisted sequence, which hands out the range itself, so blocks never overlap
+// even when processes lease blocks of different sizes. Every process leases its own blocks, so
+// IDs never collide across threads or JVMs; IDs a process had leased but not used when it exits
+// are simply skipped.
+public class IdAllocator {
+
+    public static final int DEFAULT_BLOCK_SIZE = Util.intSetting("IdBlockSize", 1000);
+
+    // where blocks come from; each call returns the first ID of size consecutive IDs that no
+    // caller in any process has had before
+    public interface BlockSource {
+        long nextBlock(int size) throws SQLException;
+    }
+
+    private static class Block {
+        final AtomicLong next;
+        final long limit;
+
+        Block(long first, long limit) {
+            this.next = new AtomicLong(first);
+            this.limit = limit;
+        }
+    }
+
+    private final BlockSource source;
+    private final int blockSize;
+    private volatile Block current = new Block(0, 0);
+
+    public IdAllocator(BlockSource source, int blockSize) {
+        this.source = source;
+        this.blockSize = Math.max(1, blockSize);
+    }
+
+    public long next() throws SQLException {
+        while (true) {
+            Block block = current;
+            long id = block.next.getAndIncrement();
+            if (id < block.limit) {
+                return id;
+            }
+            refill(block);
+        }
+    }
+
+    // only the first thread to find the block exhausted leases a new one
+    private synchronized void refill(Block exhausted) throws SQLException {
+        if (current == exhausted) {
+            long first = source.nextBlock(blockSize);
+            current = new Block(first, Math.addExact(first, blockSize));
+        }
+    }
+}
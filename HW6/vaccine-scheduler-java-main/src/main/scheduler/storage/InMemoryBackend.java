@@ -0,0 +1,424 @@
+package scheduler.storage;
+
+import scheduler.model.Appointment;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+// An embedded, in-process backend that keeps everything in memory. It enforces the same keys
+// and references as create.sql and the same atomicity as the SQL Server statements, so the
+// whole scheduler (and its load tests) can run locally at memory speed. Data is lost on exit.
+public class InMemoryBackend implements StorageBackend {
+
+    private static final int FETCH_SIZE = 128;
+
+    private final MemoryUsers patients = new MemoryUsers("Patient");
+    private final MemoryUsers caregivers = new MemoryUsers("Caregivers");
+
+    // availabilities, vaccines and appointments change together during reserve and cancel,
+    // so they share one lock
+    private final ReentrantLock lock = new ReentrantLock();
+    // day -> caregiver -> the caregiver's free slots that day
+    private final TreeMap<LocalDate, TreeMap<String, DaySlots>> availabilities = new TreeMap<>();
+    private final TreeMap<String, Integer> vaccines = new TreeMap<>();
+    private final TreeMap<Long, Appointment> appointments = new TreeMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final IdAllocator ids = new IdAllocator(nextId::getAndAdd, IdAllocator.DEFAULT_BLOCK_SIZE);
+
+    private final AvailabilityRepository availabilityRepository = new MemoryAvailabilities();
+    private final VaccineRepository vaccineRepository = new MemoryVaccines();
+    private final AppointmentRepository appointmentRepository = new MemoryAppointments();
+
+    @Override
+    public void initialize() {
+    }
+
+    @Override
+    public UserRepository patients() {
+        return patients;
+    }
+
+    @Override
+    public UserRepository caregivers() {
+        return caregivers;
+    }
+
+    @Override
+    public AvailabilityRepository availabilities() {
+        return availabilityRepository;
+    }
+
+    @Override
+    public VaccineRepository vaccines() {
+        return vaccineRepository;
+    }
+
+    @Override
+    public AppointmentRepository appointments() {
+        return appointmentRepository;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    // stores an appointment as it was booked before slots existed: it has no slot and took the
+    // caregiver's whole day, so the day's availability goes away. For regression checks against
+    // rows a database upgraded by migration V5 can still hold.
+    public long insertLegacyAppointment(Date time, String patient, String caregiver, String vaccine)
+            throws SQLException {
+        lock.lock();
+        try {
+            dayOf(time.toLocalDate()).remove(caregiver);
+            long id = ids.next();
+            appointments.put(id, new Appointment(id, time, patient, caregiver, vaccine, Appointment.NO_SLOT));
+            return id;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static class MemoryUsers implements UserRepository {
+        private final String table;
+        private final ConcurrentHashMap<String, Credentials> users = new ConcurrentHashMap<>();
+
+        MemoryUsers(String table) {
+            this.table = table;
+        }
+
+        @Override
+        public void insert(String username, byte[] salt, byte[] hash) throws SQLException {
+            if (users.putIfAbsent(username, new Credentials(salt.clone(), hash.clone())) != null) {
+                throw new SQLException("Violation of PRIMARY KEY on " + table + ": " + username);
+            }
+        }
+
+        @Override
+        public boolean[] insertAll(List<String> usernames, List<Credentials> credentials) {
+            boolean[] inserted = new boolean[usernames.size()];
+            for (int i = 0; i < inserted.length; i++) {
+                Credentials c = credentials.get(i);
+                inserted[i] = users.putIfAbsent(usernames.get(i),
+                        new Credentials(c.getSalt().clone(), c.getHash().clone())) == null;
+            }
+            return inserted;
+        }
+
+        @Override
+        public Credentials find(String username) {
+            return users.get(username);
+        }
+
+        @Override
+        public boolean exists(String username) {
+            return users.containsKey(username);
+        }
+
+        @Override
+        public void forEachUsername(Consumer<String> visitor) {
+            users.keySet().forEach(visitor);
+        }
+    }
+
+    // callers hold the lock
+    private TreeMap<String, DaySlots> dayOf(LocalDate day) {
+        return availabilities.computeIfAbsent(day, k -> new TreeMap<>());
+    }
+
+    private class MemoryAvailabilities implements AvailabilityRepository {
+
+        @Override
+        public Map<Date, DaySlots> addSlots(String caregiver, List<Date> days, DaySlots slots) throws SQLException {
+            if (!caregivers.exists(caregiver)) {
+                throw new SQLException("No such caregiver: " + caregiver);
+            }
+            Map<Date, DaySlots> free = new LinkedHashMap<>();
+            lock.lock();
+            try {
+                Map<LocalDate, DaySlots> booked = new HashMap<>();
+                for (Appointment appointment : appointments.values()) {
+                    if (appointment.getCaregiver().equals(caregiver)) {
+                        // an appointment from before slots books the whole day
+                        DaySlots slot = appointment.getSlot() == Appointment.NO_SLOT
+                                ? DaySlots.ALL : DaySlots.single(appointment.getSlot());
+                        booked.merge(appointment.getTime().toLocalDate(), slot, DaySlots::with);
+                    }
+                }
+                for (Date time : days) {
+                    LocalDate day = time.toLocalDate();
+                    DaySlots open = slots.without(booked.getOrDefault(day, DaySlots.NONE));
+                    if (!open.isEmpty()) {
+                        free.put(time, dayOf(day).merge(caregiver, open, DaySlots::with));
+                    } else {
+                        // as in ADD_AVAILABILITY_SLOTS, nothing to open adds no day
+                        TreeMap<String, DaySlots> published = availabilities.get(day);
+                        free.put(time, published == null ? DaySlots.NONE
+                                : published.getOrDefault(caregiver, DaySlots.NONE));
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            return free;
+        }
+
+        @Override
+        public boolean[] insertAll(List<Date> times, List<String> caregivers) {
+            boolean[] inserted = new boolean[times.size()];
+            lock.lock();
+            try {
+                for (int i = 0; i < inserted.length; i++) {
+                    String caregiver = caregivers.get(i);
+                    inserted[i] = InMemoryBackend.this.caregivers.exists(caregiver)
+                            && dayOf(times.get(i).toLocalDate()).putIfAbsent(caregiver, DaySlots.DEFAULT_HOURS) == null;
+                }
+            } finally {
+                lock.unlock();
+            }
+            return inserted;
+        }
+
+        @Override
+        public List<String> caregiversOn(Date time) {
+            lock.lock();
+            try {
+                List<String> free = new ArrayList<>();
+                TreeMap<String, DaySlots> day = availabilities.get(time.toLocalDate());
+                if (day != null) {
+                    for (Map.Entry<String, DaySlots> caregiver : day.entrySet()) {
+                        if (!caregiver.getValue().isEmpty()) {
+                            free.add(caregiver.getKey());
+                        }
+                    }
+                }
+                return free;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void forEach(BiConsumer<Date, String> visitor) {
+            lock.lock();
+            try {
+                for (Map.Entry<LocalDate, TreeMap<String, DaySlots>> day : availabilities.entrySet()) {
+                    Date time = Date.valueOf(day.getKey());
+                    for (Map.Entry<String, DaySlots> caregiver : day.getValue().entrySet()) {
+                        if (!caregiver.getValue().isEmpty()) {
+                            visitor.accept(time, caregiver.getKey());
+                        }
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private class MemoryVaccines implements VaccineRepository {
+
+        @Override
+        public Integer findDoses(String name) {
+            lock.lock();
+            try {
+                return vaccines.get(name);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void insert(String name, int doses) throws SQLException {
+            lock.lock();
+            try {
+                if (vaccines.putIfAbsent(name, doses) != null) {
+                    throw new SQLException("Violation of PRIMARY KEY on Vaccines: " + name);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public Integer increase(String name, int num) {
+            lock.lock();
+            try {
+                return vaccines.computeIfPresent(name, (k, doses) -> doses + num);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public Integer decrease(String name, int num) {
+            lock.lock();
+            try {
+                Integer doses = vaccines.get(name);
+                if (doses == null || doses < num) {
+                    return null;
+                }
+                vaccines.put(name, doses - num);
+                return doses - num;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public Map<String, Integer> adjustAll(Map<String, Integer> deltas) {
+            Map<String, Integer> updated = new LinkedHashMap<>();
+            lock.lock();
+            try {
+                for (Map.Entry<String, Integer> delta : deltas.entrySet()) {
+                    int next = vaccines.getOrDefault(delta.getKey(), 0) + delta.getValue();
+                    if (next >= 0) {
+                        vaccines.put(delta.getKey(), next);
+                        updated.put(delta.getKey(), next);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            return updated;
+        }
+
+        @Override
+        public Map<String, Integer> listAll() {
+            lock.lock();
+            try {
+                return new LinkedHashMap<>(vaccines);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private class MemoryAppointments implements AppointmentRepository {
+
+        @Override
+        public Reservation reserve(Date time, String vaccine, String patient) throws SQLException {
+            if (!patients.exists(patient)) {
+                throw new SQLException("No such patient: " + patient);
+            }
+            lock.lock();
+            try {
+                // the first caregiver by username with a free slot, as RESERVE picks them
+                Map.Entry<String, DaySlots> free = null;
+                TreeMap<String, DaySlots> day = availabilities.get(time.toLocalDate());
+                if (day != null) {
+                    for (Map.Entry<String, DaySlots> caregiver : day.entrySet()) {
+                        if (!caregiver.getValue().isEmpty()) {
+                            free = caregiver;
+                            break;
+                        }
+                    }
+                }
+                if (free == null) {
+                    return Reservation.failed(Reservation.Outcome.NO_CAREGIVER);
+                }
+                Integer doses = vaccines.get(vaccine);
+                if (doses == null || doses < 1) {
+                    return Reservation.failed(Reservation.Outcome.NO_DOSES);
+                }
+                String caregiver = free.getKey();
+                int slot = free.getValue().firstFree();
+                DaySlots left = free.getValue().without(DaySlots.single(slot));
+                free.setValue(left);
+                vaccines.put(vaccine, doses - 1);
+                long id = ids.next();
+                appointments.put(id, new Appointment(id, time, patient, caregiver, vaccine, slot));
+                return Reservation.reserved(id, caregiver, slot, left.isEmpty());
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public Appointment find(long id) {
+            lock.lock();
+            try {
+                return appointments.get(id);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean cancel(long id) {
+            lock.lock();
+            try {
+                Appointment appointment = appointments.remove(id);
+                if (appointment == null) {
+                    return false;
+                }
+                // the slot opens again; an appointment from before slots took the whole day, which
+                // comes back with the default hours unless the caregiver republished it since
+                TreeMap<String, DaySlots> day = dayOf(appointment.getTime().toLocalDate());
+                if (appointment.getSlot() == Appointment.NO_SLOT) {
+                    day.putIfAbsent(appointment.getCaregiver(), DaySlots.DEFAULT_HOURS);
+                } else {
+                    day.merge(appointment.getCaregiver(), DaySlots.single(appointment.getSlot()), DaySlots::with);
+                }
+                vaccines.computeIfPresent(appointment.getVaccine(), (k, doses) -> doses + 1);
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public int forEachForCaregiver(String caregiver, AppointmentPage page, Consumer<Appointment> visitor) {
+            return forEach(a -> a.getCaregiver().equals(caregiver), page, visitor);
+        }
+
+        @Override
+        public int forEachForPatient(String patient, AppointmentPage page, Consumer<Appointment> visitor) {
+            return forEach(a -> a.getPatient().equals(patient), page, visitor);
+        }
+
+        // walks the page a batch at a time, so the visitor never runs under the lock
+        private int forEach(Predicate<Appointment> owner, AppointmentPage page, Consumer<Appointment> visitor) {
+            long after = page.getAfterId();
+            int count = 0;
+            List<Appointment> batch = new ArrayList<>(FETCH_SIZE);
+            while (count < page.getLimit()) {
+                batch.clear();
+                lock.lock();
+                try {
+                    for (Appointment appointment : appointments.tailMap(after, false).values()) {
+                        if (owner.test(appointment) && page.includes(appointment)) {
+                            batch.add(appointment);
+                            if (batch.size() == FETCH_SIZE || count + batch.size() == page.getLimit()) {
+                                break;
+                            }
+                        }
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                if (batch.isEmpty()) {
+                    break;
+                }
+                for (Appointment appointment : batch) {
+                    visitor.accept(appointment);
+                }
+                count += batch.size();
+                after = batch.get(batch.size() - 1).getId();
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package scheduler.storage;
+
+// The result of AppointmentRepository.reserve
+public class Reservation {
+
+    public enum Outcome {
+        RESERVED,
+        NO_CAREGIVER,
+        NO_DOSES
+    }
+
+    private final Outcome outcome;
+    private final long appointmentId;
+    private final String caregiver;
+    private final int slot;
+    private final boolean dayFull;
+
+    private Reservation(Outcome outcome, long appointmentId, String caregiver, int slot, boolean dayFull) {
+        this.outcome = outcome;
+        this.appointmentId = appointmentId;
+        this.caregiver = caregiver;
+        this.slot = slot;
+        this.dayFull = dayFull;
+    }
+
+    // dayFull says the booked slot was the caregiver's last free one that day
+    public static Reservation reserved(long appointmentId, String caregiver, int slot, boolean dayFull) {
+        return new Reservation(Outcome.RESERVED, appointmentId, caregiver, slot, dayFull);
+    }
+
+    public static Reservation failed(Outcome outcome) {
+        return new Reservation(outcome, 0, null, -1, false);
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    public long getAppointmentId() {
+        return appointmentId;
+    }
+
+    public String getCaregiver() {
+        return caregiver;
+    }
+
+    // see DaySlots
+    public int getSlot() {
+        return slot;
+    }
+
+    public boolean isDayFull() {
+        return dayFull;
+    }
+}
@@ -0,0 +1,51 @@
+package scheduler.storage;
+
+import scheduler.db.SqlServerBackend;
+
+// Holds the process-wide storage backend. It is chosen by the StorageBackend environment
+// variable (or the scheduler.storage system property): "sqlserver" (default) or "memory".
+public class Storage {
+
+    private static StorageBackend backend = null;
+
+    public static synchronized StorageBackend backend() {
+        if (backend == null) {
+            backend = create(setting());
+        }
+        return backend;
+    }
+
+    // replaces the backend, e.g. to run benchmarks or load tests against the in-memory one
+    public static synchronized void use(StorageBackend replacement) {
+        if (backend != null && backend != replacement) {
+            backend.close();
+        }
+        backend = replacement;
+    }
+
+    public static synchronized void shutdown() {
+        if (backend != null) {
+            backend.close();
+            backend = null;
+        }
+    }
+
+    private static String setting() {
+        String value = System.getProperty("scheduler.storage");
+        if (value == null || value.isEmpty()) {
+            value = System.getenv("StorageBackend");
+        }
+        return value == null || value.isEmpty() ? "sqlserver" : value.trim().toLowerCase();
+    }
+
+    private static StorageBackend create(String name) {
+        switch (name) {
+            case "memory":
+                return new InMemoryBackend();
+            case "sqlserver":
+                return new SqlServerBackend();
+            default:
+                throw new IllegalArgumentException("Unknown storage backend: " + name);
+        }
+    }
+}
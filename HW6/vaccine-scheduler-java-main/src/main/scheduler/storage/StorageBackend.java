@@ -0,0 +1,22 @@
+package scheduler.storage;
+
+import java.sql.SQLException;
+
+// Where the scheduler keeps its data. Pick one with Storage.backend().
+public interface StorageBackend {
+
+    // gets the store ready before first use, e.g. bringing its schema up to date
+    void initialize() throws SQLException;
+
+    UserRepository patients();
+
+    UserRepository caregivers();
+
+    AvailabilityRepository availabilities();
+
+    VaccineRepository vaccines();
+
+    AppointmentRepository appointments();
+
+    void close();
+}
@@ -0,0 +1,24 @@
+package scheduler.storage;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Accounts for one kind of user (patients or caregivers)
+public interface UserRepository {
+
+    // fails if the username is already taken
+    void insert(String username, byte[] salt, byte[] hash) throws SQLException;
+
+    // inserts many users in one round trip; a row whose username is taken is skipped, and the
+    // result says which rows went in
+    boolean[] insertAll(List<String> usernames, List<Credentials> credentials) throws SQLException;
+
+    // null if there is no such user
+    Credentials find(String username) throws SQLException;
+
+    boolean exists(String username) throws SQLException;
+
+    // streams every username in the table
+    void forEachUsername(Consumer<String> visitor) throws SQLException;
+}
@@ -0,0 +1,25 @@
+package scheduler.storage;
+
+import java.sql.SQLException;
+import java.util.Map;
+
+public interface VaccineRepository {
+
+    // null if there is no such vaccine
+    Integer findDoses(String name) throws SQLException;
+
+    void insert(String name, int doses) throws SQLException;
+
+    // adds num doses; returns the new count, or null if the vaccine does not exist
+    Integer increase(String name, int num) throws SQLException;
+
+    // takes num doses only if that many are available; returns the new count, or null if not
+    Integer decrease(String name, int num) throws SQLException;
+
+    // applies every delta atomically per vaccine, creating missing vaccines and skipping deltas
+    // that would go below zero; returns the new count of every vaccine that was adjusted
+    Map<String, Integer> adjustAll(Map<String, Integer> deltas) throws SQLException;
+
+    // every vaccine and its dose count, ordered by name
+    Map<String, Integer> listAll() throws SQLException;
+}
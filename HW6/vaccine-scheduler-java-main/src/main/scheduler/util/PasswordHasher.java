@@ -0,0 +1,138 @@
+package scheduler.util;
+
+import scheduler.metrics.Metrics;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Runs PBKDF2 on a dedicated, bounded pool of worker threads so password hashing, which is pure
+// CPU, never ties up the threads serving sessions and database calls. Submitters block while
+// the queue is full, which gives callers like bulk imports natural backpressure.
+public class PasswordHasher {
+
+    private static final PasswordHasher instance = new PasswordHasher(
+            Util.intSetting("HashThreads", Runtime.getRuntime().availableProcessors()),
+            Util.intSetting("HashQueueCapacity", 1024));
+
+    static {
+        // shown by the stats command and written to the metrics file
+        Metrics.registerGauge("scheduler_password_hash_queue_depth", instance::getQueueDepth);
+        Metrics.registerGauge("scheduler_password_hash_active_workers", instance::getActiveWorkers);
+        Metrics.registerCounter("scheduler_password_hash_completed_total", instance::getCompletedCount);
+        Metrics.registerGauge("scheduler_password_hash_queue_wait_seconds_mean",
+                () -> instance.getMeanQueueWaitMillis() / 1e3);
+        Metrics.registerGauge("scheduler_password_hash_seconds_mean", () -> instance.getMeanHashMillis() / 1e3);
+        Metrics.registerGauge("scheduler_password_hash_latency_seconds_max", () -> instance.getMaxLatencyMillis() / 1e3);
+    }
+
+    private final ThreadPoolExecutor workers;
+    private final Semaphore capacity;
+
+    // metrics
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAdder hashNanos = new LongAdder();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    public PasswordHasher(int threads, int queueCapacity) {
+        AtomicInteger count = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "password-hasher-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        // counts tasks until they finish, so the queue itself can never overflow
+        this.capacity = new Semaphore(queueCapacity);
+    }
+
+    public static PasswordHasher getInstance() {
+        return instance;
+    }
+
+    // hashes on the worker pool and waits for the result
+    public byte[] hash(String password, byte[] salt) {
+        try {
+            return hashAsync(password, salt).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public CompletableFuture<byte[]> hashAsync(String password, byte[] salt) {
+        capacity.acquireUninterruptibly();
+        submitted.increment();
+        long enqueued = System.nanoTime();
+        CompletableFuture<byte[]> result = new CompletableFuture<>();
+        workers.execute(() -> {
+            long started = System.nanoTime();
+            try {
+                result.complete(Util.generateHash(password, salt));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            } finally {
+                long finished = System.nanoTime();
+                queueWaitNanos.add(started - enqueued);
+                hashNanos.add(finished - started);
+                maxLatencyNanos.accumulateAndGet(finished - enqueued, Math::max);
+                completed.increment();
+                capacity.release();
+            }
+        });
+        return result;
+    }
+
+    // Metrics
+    public int getQueueDepth() {
+        return workers.getQueue().size();
+    }
+
+    public int getActiveWorkers() {
+        return workers.getActiveCount();
+    }
+
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    public double getMeanQueueWaitMillis() {
+        long n = completed.sum();
+        return n == 0 ? 0.0 : queueWaitNanos.sum() / 1e6 / n;
+    }
+
+    public double getMeanHashMillis() {
+        long n = completed.sum();
+        return n == 0 ? 0.0 : hashNanos.sum() / 1e6 / n;
+    }
+
+    public double getMaxLatencyMillis() {
+        return maxLatencyNanos.get() / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return "PasswordHasher{" +
+                "queueDepth=" + getQueueDepth() +
+                ", active=" + getActiveWorkers() +
+                ", completed=" + getCompletedCount() +
+                ", meanQueueWaitMs=" + String.format("%.3f", getMeanQueueWaitMillis()) +
+                ", meanHashMs=" + String.format("%.3f", getMeanHashMillis()) +
+                ", maxLatencyMs=" + String.format("%.3f", getMaxLatencyMillis()) +
+                '}';
+    }
+}
@@ -1,5 +1,7 @@
 package scheduler.util;
 
+import scheduler.metrics.PasswordHashEvent;
+
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.PBEKeySpec;
 import java.security.NoSuchAlgorithmException;
@@ -14,30 +16,65 @@ public class Util {
     private static final int HASH_STRENGTH = 10;
     private static final int KEY_LENGTH = 16;
 
+    // SecureRandom is thread-safe; seeding one is expensive, so it is shared
+    private static final SecureRandom random = new SecureRandom();
+
+    // SecretKeyFactory is not thread-safe, so each thread looks the provider up once and keeps it
+    private static final ThreadLocal<SecretKeyFactory> factories = ThreadLocal.withInitial(() -> {
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException();
+        }
+    });
+
     public static byte[] generateSalt() {
         // Generate a random cryptographic salt
-        SecureRandom random = new SecureRandom();
         byte[] salt = new byte[16];
         random.nextBytes(salt);
         return salt;
     }
 
+    // computes the hash on the calling thread; request paths should go through PasswordHasher
     public static byte[] generateHash(String password, byte[] salt) {
         // Specify the hash parameters
         KeySpec spec = new PBEKeySpec(password.toCharArray(), salt, HASH_STRENGTH, KEY_LENGTH);
 
         // Generate the hash
-        SecretKeyFactory factory = null;
+        PasswordHashEvent event = new PasswordHashEvent();
+        event.begin();
         byte[] hash = null;
         try {
-            factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1");
-            hash = factory.generateSecret(spec).getEncoded();
-        } catch (NoSuchAlgorithmException | InvalidKeySpecException ex) {
+            hash = factories.get().generateSecret(spec).getEncoded();
+        } catch (InvalidKeySpecException ex) {
             throw new IllegalStateException();
+        } finally {
+            event.iterations = HASH_STRENGTH;
+            event.keyLength = KEY_LENGTH;
+            event.commit();
         }
         return hash;
     }
 
+    // a positive integer setting from the environment, or the default if it is unset or invalid
+    public static int intSetting(String name, int defaultValue) {
+        return intSetting(name, defaultValue, 1);
+    }
+
+    // the same, with values below min raised to min
+    public static int intSetting(String name, int defaultValue, int min) {
+        String value = System.getenv(name);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Math.max(min, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            System.out.println("Ignoring invalid value for " + name + ": " + value);
+            return defaultValue;
+        }
+    }
+
     public static byte[] trim(byte[] bytes)
     {
         int i = bytes.length - 1;